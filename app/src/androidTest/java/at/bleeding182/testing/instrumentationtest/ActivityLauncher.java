@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.support.test.uiautomator.By;
+import android.support.test.uiautomator.UiDevice;
+import android.support.test.uiautomator.Until;
+import android.util.Log;
+
+import java.util.Collection;
+import java.util.Locale;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Brings {@link MainActivity} to the screen in the current locale.
+ * <p>
+ * By default a running activity is kept alive and recreated in place with the new locale, which
+ * only costs one recreate and one frame. The app is started from the home screen with a cleared
+ * task if no activity is running yet, if a caller asks for a fresh start or if the run was
+ * started with {@code -e launchMode cold}.
+ */
+public class ActivityLauncher {
+
+    private static final long LAUNCH_TIMEOUT = 5 * 1000;
+
+    private final Instrumentation mInstrumentation;
+    private final UiDevice mDevice;
+    private final IdleSynchronizer mSynchronizer;
+    private final boolean mAlwaysCold;
+
+    public ActivityLauncher(Instrumentation instrumentation, UiDevice device, IdleSynchronizer synchronizer) {
+        mInstrumentation = instrumentation;
+        mDevice = device;
+        mSynchronizer = synchronizer;
+
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        mAlwaysCold = arguments != null && "cold".equals(arguments.getString("launchMode"));
+    }
+
+    /**
+     * Shows the activity in the given locale, which has to be applied to the app resources already.
+     *
+     * @param locale     the locale to show
+     * @param freshStart whether the app has to be started from the home screen
+     */
+    public void launch(Locale locale, boolean freshStart) {
+        if (freshStart || mAlwaysCold || !recreate(locale)) {
+            coldLaunch();
+        }
+    }
+
+    private void coldLaunch() {
+        // Start from the home screen
+        long start = Tracing.begin("launcherWait");
+        try {
+            mDevice.pressHome();
+
+            // Wait for launcher
+            final String launcherPackage = mDevice.getLauncherPackageName();
+            assertThat(launcherPackage, notNullValue());
+            mDevice.wait(Until.hasObject(By.pkg(launcherPackage).depth(0)), LAUNCH_TIMEOUT);
+        } finally {
+            Tracing.end("launcherWait", start);
+        }
+
+        // Launch the app
+        Context context = InstrumentationRegistry.getContext();
+        final Intent intent = context.getPackageManager().getLaunchIntentForPackage(BuildConfig.APPLICATION_ID);
+
+        // Clear out any previous instances
+        start = Tracing.begin("appStart");
+        try {
+            intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(intent);
+
+            // Wait for the app to appear
+            mDevice.wait(Until.hasObject(By.pkg(BuildConfig.APPLICATION_ID).depth(0)), LAUNCH_TIMEOUT);
+        } finally {
+            Tracing.end("appStart", start);
+        }
+        mSynchronizer.waitForIdle("launch", IdleSynchronizer.activityResumed());
+    }
+
+    private boolean recreate(final Locale locale) {
+        final Activity[] running = new Activity[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Collection<Activity> activities = ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED);
+                if (activities.isEmpty()) {
+                    return;
+                }
+                running[0] = activities.iterator().next();
+                LocaleSwitcher.applyTo(running[0].getResources(), locale);
+                running[0].recreate();
+            }
+        });
+        if (running[0] == null) {
+            return false;
+        }
+        Log.d("LocalizationTest", "Recreating " + running[0] + " for " + locale);
+        mSynchronizer.waitForIdle("recreate", activityReplaced(running[0]));
+        return true;
+    }
+
+    private static IdleSynchronizer.Condition activityReplaced(final Activity previous) {
+        return new IdleSynchronizer.Condition() {
+            @Override
+            public boolean isSatisfied() {
+                Collection<Activity> activities = ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED);
+                return !activities.isEmpty() && !activities.contains(previous);
+            }
+        };
+    }
+}
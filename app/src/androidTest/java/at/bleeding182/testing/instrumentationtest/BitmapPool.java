@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Keeps released bitmaps around for reuse, so taking screenshots does not allocate a new
+ * full-screen bitmap for every capture.
+ * <p>
+ * Bitmaps are matched by size and config. Once the pooled bitmaps exceed the byte limit the
+ * least recently released ones are recycled. Safe to use from multiple threads.
+ */
+public class BitmapPool {
+
+    private final long mMaxBytes;
+    private final Deque<Bitmap> mFree = new ArrayDeque<>();
+    private long mPooledBytes;
+    private int mAllocations;
+    private int mOutstanding;
+    private long mOutstandingBytes;
+
+    /**
+     * @param maxBytes the maximum size of all currently unused bitmaps
+     */
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a cleared bitmap of the given size, reusing a released one if possible.
+     */
+    public synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        mOutstanding++;
+        for (Iterator<Bitmap> iterator = mFree.iterator(); iterator.hasNext(); ) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                iterator.remove();
+                mPooledBytes -= bitmap.getByteCount();
+                mOutstandingBytes += bitmap.getByteCount();
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        mAllocations++;
+        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        mOutstandingBytes += bitmap.getByteCount();
+        return bitmap;
+    }
+
+    /**
+     * Hands a bitmap back to the pool. It must not be used by the caller afterwards.
+     */
+    public synchronized void release(Bitmap bitmap) {
+        mOutstanding--;
+        mOutstandingBytes -= bitmap.getByteCount();
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        mFree.addFirst(bitmap);
+        mPooledBytes += bitmap.getByteCount();
+        trim(mMaxBytes);
+    }
+
+    /**
+     * Recycles all unused bitmaps.
+     */
+    public synchronized void clear() {
+        trim(0);
+    }
+
+    private void trim(long maxBytes) {
+        while (mPooledBytes > maxBytes && !mFree.isEmpty()) {
+            Bitmap bitmap = mFree.removeLast();
+            mPooledBytes -= bitmap.getByteCount();
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * @return the size of all unused bitmaps in the pool
+     */
+    public synchronized long getPooledBytes() {
+        return mPooledBytes;
+    }
+
+    /**
+     * @return how many bitmaps had to be created because none could be reused
+     */
+    public synchronized int getAllocations() {
+        return mAllocations;
+    }
+
+    /**
+     * @return how many acquired bitmaps have not been released yet
+     */
+    public synchronized int getOutstanding() {
+        return mOutstanding;
+    }
+
+    /**
+     * @return the size of all acquired bitmaps that have not been released yet
+     */
+    public synchronized long getOutstandingBytes() {
+        return mOutstandingBytes;
+    }
+}
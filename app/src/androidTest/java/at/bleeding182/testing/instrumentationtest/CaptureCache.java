@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores written screenshots by their {@link CaptureKey}, so captures whose inputs did not change
+ * can be copied instead of taken again.
+ * <p>
+ * The least recently used artifacts are deleted once the cache grows beyond its size limit. The
+ * cache lives in {@code -e captureCache <dir>} (default {@code /sdcard/screenshot-cache}), is
+ * limited to {@code -e captureCacheSize <MB>} (default 256) and can be turned off with
+ * {@code -e captureCache off}.
+ */
+public class CaptureCache {
+
+    private static final String INDEX = "index.txt";
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes;
+    private int mHits;
+    private int mMisses;
+    private int mEvictions;
+
+    /**
+     * @return the cache configured by the instrumentation arguments, or null if it is turned off
+     */
+    public static CaptureCache fromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String directory = arguments != null ? arguments.getString("captureCache") : null;
+        String size = arguments != null ? arguments.getString("captureCacheSize") : null;
+        if ("off".equals(directory)) {
+            return null;
+        }
+        return new CaptureCache(new File(directory != null ? directory : "/sdcard/screenshot-cache"),
+                (size != null ? Long.parseLong(size) : 256) * 1024 * 1024);
+    }
+
+    public CaptureCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        readIndex();
+    }
+
+    /**
+     * Copies the artifact stored for the key to the target, if there is one.
+     *
+     * @return whether the artifact was found
+     */
+    public synchronized boolean restore(String key, File target) {
+        Long size = mEntries.get(key);
+        File artifact = new File(mDirectory, key);
+        if (size == null || !artifact.isFile()) {
+            mMisses++;
+            return false;
+        }
+        try {
+            copy(artifact, target);
+        } catch (IOException e) {
+            Log.w("LocalizationTest", "Could not restore " + key, e);
+            mMisses++;
+            return false;
+        }
+        mHits++;
+        writeIndex();
+        return true;
+    }
+
+    /**
+     * Stores a copy of a written screenshot under the key.
+     */
+    public synchronized void store(String key, File source) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Could not create " + mDirectory);
+        }
+        copy(source, new File(mDirectory, key));
+        Long previous = mEntries.put(key, source.length());
+        mBytes += source.length() - (previous != null ? previous : 0);
+        evict();
+        writeIndex();
+    }
+
+    private void evict() {
+        for (Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+             mBytes > mMaxBytes && iterator.hasNext(); ) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mBytes -= eldest.getValue();
+            mEvictions++;
+            if (!new File(mDirectory, eldest.getKey()).delete()) {
+                Log.w("LocalizationTest", "Could not delete cached " + eldest.getKey());
+            }
+        }
+    }
+
+    public synchronized int getHits() {
+        return mHits;
+    }
+
+    public synchronized int getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * Logs the counters and writes them to the given file.
+     */
+    public synchronized void writeStats(File file) throws IOException {
+        String stats = "hits=" + mHits + "\nmisses=" + mMisses + "\nevictions=" + mEvictions
+                + "\nentries=" + mEntries.size() + "\nbytes=" + mBytes + "\n";
+        Log.i("LocalizationTest", "Capture cache: " + stats.replace('\n', ' '));
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(stats);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void readIndex() {
+        File index = new File(mDirectory, INDEX);
+        if (!index.isFile()) {
+            return;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(index));
+            try {
+                // least recently used first
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    if (parts.length == 2 && new File(mDirectory, parts[0]).isFile()) {
+                        long size = Long.parseLong(parts[1]);
+                        mEntries.put(parts[0], size);
+                        mBytes += size;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.w("LocalizationTest", "Ignoring broken capture cache index", e);
+            mEntries.clear();
+            mBytes = 0;
+        }
+    }
+
+    private void writeIndex() {
+        File index = new File(mDirectory, INDEX);
+        File temp = new File(mDirectory, INDEX + ".tmp");
+        try {
+            Writer writer = new FileWriter(temp);
+            try {
+                for (Map.Entry<String, Long> entry : mEntries.entrySet()) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+            if (!temp.renameTo(index)) {
+                throw new IOException("Could not replace " + index);
+            }
+        } catch (IOException e) {
+            Log.w("LocalizationTest", "Could not write capture cache index", e);
+        }
+    }
+
+    static void copy(File source, File target) throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(target);
+            try {
+                FileChannel channel = in.getChannel();
+                channel.transferTo(0, channel.size(), out.getChannel());
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
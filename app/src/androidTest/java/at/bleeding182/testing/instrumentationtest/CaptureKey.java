@@ -0,0 +1,276 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Build;
+import android.support.annotation.LayoutRes;
+import android.util.DisplayMetrics;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Fingerprint of everything that feeds a screenshot, used to find captures that did not change.
+ * <p>
+ * Resources are resolved through the given {@link Resources}, so they have to be configured for
+ * the locale and device of the capture.
+ */
+public class CaptureKey {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static int[] sStrings;
+    private static int[] sDimens;
+    private static String sApp;
+
+    private final MessageDigest mDigest;
+
+    public CaptureKey() {
+        try {
+            mDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds the value of every string resource.
+     */
+    public CaptureKey strings(Resources resources) {
+        for (int id : stringIds()) {
+            add(resources.getString(id));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the value of every dimension resource, in pixels.
+     */
+    public CaptureKey dimens(Resources resources) {
+        for (int id : dimens()) {
+            add(Float.toString(resources.getDimension(id)));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the tags and attributes of the layout picked for the configuration.
+     */
+    public CaptureKey layout(Resources resources, @LayoutRes int layout) {
+        XmlResourceParser parser = resources.getLayout(layout);
+        try {
+            for (int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+                if (event == XmlPullParser.START_TAG) {
+                    add(parser.getName());
+                    for (int i = 0; i < parser.getAttributeCount(); i++) {
+                        add(parser.getAttributeName(i) + "=" + parser.getAttributeValue(i));
+                    }
+                }
+            }
+        } catch (XmlPullParserException | IOException e) {
+            throw new IllegalStateException("Could not read layout " + layout, e);
+        } finally {
+            parser.close();
+        }
+        return this;
+    }
+
+    /**
+     * Adds what the apk of the app contributes to rendering: the resource table, the files below
+     * {@code res/} and {@code assets/} and the themes of the app and its activities. Entries are
+     * hashed by name and CRC, so code changes and the zip timestamps of a rebuild leave the key
+     * alone. The apk is only read once.
+     */
+    public CaptureKey app(Context context) {
+        add(appFingerprint(context));
+        return this;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static synchronized String appFingerprint(Context context) {
+        if (sApp != null) {
+            return sApp;
+        }
+        CaptureKey key = new CaptureKey();
+        ApplicationInfo info = context.getApplicationInfo();
+        key.add("theme=" + info.theme);
+        try {
+            ActivityInfo[] activities = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), PackageManager.GET_ACTIVITIES).activities;
+            if (activities != null) {
+                for (ActivityInfo activity : activities) {
+                    key.add(activity.name + "=" + activity.theme);
+                }
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        key.resources(info.sourceDir);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && info.splitSourceDirs != null) {
+            for (String split : info.splitSourceDirs) {
+                key.resources(split);
+            }
+        }
+        sApp = key.build();
+        return sApp;
+    }
+
+    private void resources(String apk) {
+        List<String> entries = new ArrayList<>();
+        try {
+            ZipFile zip = new ZipFile(apk);
+            try {
+                Enumeration<? extends ZipEntry> all = zip.entries();
+                while (all.hasMoreElements()) {
+                    ZipEntry entry = all.nextElement();
+                    String name = entry.getName();
+                    if ("resources.arsc".equals(name) || name.startsWith("res/") || name.startsWith("assets/")) {
+                        entries.add(name + "=" + Long.toHexString(entry.getCrc()) + "/" + entry.getSize());
+                    }
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + apk, e);
+        }
+        // the order of the entries depends on the build
+        Collections.sort(entries);
+        for (String entry : entries) {
+            add(entry);
+        }
+    }
+
+    /**
+     * Adds the device profile: model, system image and display. The locale is left out, so
+     * locales that resolve to the same resources get the same key, see {@link #locale(Resources)}.
+     */
+    public CaptureKey device(Resources resources) {
+        DisplayMetrics metrics = resources.getDisplayMetrics();
+        add(Build.MODEL);
+        add(Build.FINGERPRINT);
+        add(metrics.widthPixels + "x" + metrics.heightPixels + "@" + metrics.densityDpi);
+        Configuration config = resources.getConfiguration();
+        // Configuration.toString() contains a sequence number that changes on every update
+        add(config.fontScale + " " + config.screenWidthDp + "x" + config.screenHeightDp
+                + " sw" + config.smallestScreenWidthDp + " " + config.orientation + " " + config.uiMode);
+        return this;
+    }
+
+    /**
+     * Adds what the locale changes besides the resources: the layout direction and the number
+     * format symbols.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    public CaptureKey locale(Resources resources) {
+        Configuration config = resources.getConfiguration();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            add("direction=" + config.getLayoutDirection());
+        }
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(config.locale);
+        add("numbers=" + symbols.getZeroDigit() + symbols.getGroupingSeparator() + symbols.getDecimalSeparator()
+                + symbols.getMinusSign());
+        return this;
+    }
+
+    /**
+     * Adds any other input, e.g. the values provided by fixture modules or the output format.
+     */
+    public CaptureKey add(String value) {
+        mDigest.update(value.getBytes(UTF_8));
+        mDigest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * @return the fingerprint as hex string
+     */
+    public String build() {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : mDigest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the ids of all string resources of the app, sorted
+     */
+    static synchronized int[] stringIds() {
+        if (sStrings == null) {
+            sStrings = resourceIds(R.string.class);
+        }
+        return sStrings;
+    }
+
+    private static synchronized int[] dimens() {
+        if (sDimens == null) {
+            sDimens = resourceIds(R.dimen.class);
+        }
+        return sDimens;
+    }
+
+    private static int[] resourceIds(Class<?> type) {
+        List<Integer> ids = new ArrayList<>();
+        for (Field field : type.getFields()) {
+            if (field.getType() == int.class) {
+                try {
+                    ids.add(field.getInt(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
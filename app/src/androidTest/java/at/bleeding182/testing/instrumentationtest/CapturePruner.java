@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures each group of equivalent configurations only once.
+ * <p>
+ * Configurations are equivalent if their {@link CaptureKey} is the same, e.g. a locale without
+ * own strings and the default locale. The first configuration of a group is captured, the written
+ * file is then copied to the targets of all other configurations of the group.
+ * <p>
+ * The copies are made from a private copy of the capture, because a published screenshot may be
+ * pulled and deleted by the host at any time.
+ */
+public class CapturePruner {
+
+    private static class Group {
+        File mWritten;
+        final List<Target> mPending = new ArrayList<>();
+    }
+
+    private static class Target {
+        final File mFile;
+        final EncoderStage.Callback mCallback;
+
+        Target(File file, EncoderStage.Callback callback) {
+            mFile = file;
+            mCallback = callback;
+        }
+    }
+
+    private final File mDirectory;
+    private final Map<String, Group> mGroups = new HashMap<>();
+    private int mCaptured;
+    private int mSaved;
+
+    /**
+     * @param directory keeps a copy of every capture until the end of the run, outside of the
+     *                  published screenshots; its previous content is deleted
+     */
+    public CapturePruner(File directory) {
+        mDirectory = directory;
+        File[] stale = directory.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Registers the target of a configuration.
+     *
+     * @param key    the key of the configuration
+     * @param target   the file the capture has to end up in, including the extension
+     * @param callback notified once the capture is copied to the target, may be null
+     * @return true if the caller has to capture the configuration and report it with
+     * {@link #written(String, File)}, false if it is served from an equivalent one
+     */
+    public boolean claim(String key, File target, EncoderStage.Callback callback) throws IOException {
+        File written;
+        synchronized (this) {
+            Group group = mGroups.get(key);
+            if (group == null) {
+                mGroups.put(key, new Group());
+                mCaptured++;
+                return true;
+            }
+            mSaved++;
+            if (group.mWritten == null) {
+                group.mPending.add(new Target(target, callback));
+                return false;
+            }
+            written = group.mWritten;
+        }
+        fanOut(written, new Target(target, callback));
+        return false;
+    }
+
+    /**
+     * Copies a captured file to the equivalent configurations waiting for it. Has to be called
+     * before the file is published.
+     */
+    public void written(String key, File file) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Could not create " + mDirectory);
+        }
+        File copy = new File(mDirectory, key);
+        CaptureCache.copy(file, copy);
+        List<Target> pending;
+        synchronized (this) {
+            Group group = mGroups.get(key);
+            group.mWritten = copy;
+            pending = new ArrayList<>(group.mPending);
+            group.mPending.clear();
+        }
+        for (Target target : pending) {
+            fanOut(copy, target);
+        }
+    }
+
+    private static void fanOut(File source, Target target) throws IOException {
+        CaptureCache.copy(source, target.mFile);
+        if (target.mCallback != null) {
+            target.mCallback.onWritten(target.mFile);
+        }
+        ScreenshotPublisher.publish(target.mFile);
+    }
+
+    public synchronized int getSaved() {
+        return mSaved;
+    }
+
+    /**
+     * Logs the counters and writes them to the given file.
+     */
+    public synchronized void writeStats(File file) throws IOException {
+        String stats = "configurations=" + (mCaptured + mSaved) + "\ncaptured=" + mCaptured
+                + "\nsaved=" + mSaved + "\n";
+        Log.i("LocalizationTest", "Capture pruning: " + stats.replace('\n', ' '));
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(stats);
+        } finally {
+            writer.close();
+        }
+    }
+}
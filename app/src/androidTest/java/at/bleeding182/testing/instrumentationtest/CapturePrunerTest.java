@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.support.test.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class CapturePrunerTest {
+
+    private static final byte[] CAPTURE = "capture".getBytes();
+
+    private File mRoot;
+    private CapturePruner mPruner;
+
+    @Before
+    public void setUp() {
+        mRoot = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "capture-pruner-test");
+        delete(mRoot);
+        mPruner = new CapturePruner(new File(mRoot, "copies"));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File target(String language) {
+        File file = new File(mRoot, language + "/screenshot.png");
+        file.getParentFile().mkdirs();
+        return file;
+    }
+
+    private static void write(File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(CAPTURE);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            assertEquals(content.length, in.read(content));
+        } finally {
+            in.close();
+        }
+        return content;
+    }
+
+    @Test
+    public void equivalentConfigurationsAreServedAfterTheCaptureIsPulled() throws IOException {
+        File captured = target("en");
+        assertTrue(mPruner.claim("key", captured, null));
+        File waiting = target("de");
+        assertFalse(mPruner.claim("key", waiting, null));
+
+        write(captured);
+        mPruner.written("key", captured);
+        // the host pulled the published capture and deleted it from the device
+        assertTrue(captured.delete());
+
+        File later = target("fr");
+        assertFalse(mPruner.claim("key", later, null));
+        assertTrue(Arrays.equals(CAPTURE, read(waiting)));
+        assertTrue(Arrays.equals(CAPTURE, read(later)));
+        assertEquals(2, mPruner.getSaved());
+    }
+}
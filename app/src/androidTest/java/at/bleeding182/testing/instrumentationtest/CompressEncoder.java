@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.graphics.Bitmap;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes bitmaps with {@link Bitmap#compress(Bitmap.CompressFormat, int, OutputStream)} into a
+ * buffered stream.
+ * <p>
+ * PNG is lossless and ignores the quality, use WEBP or JPEG to trade quality for speed and size.
+ */
+public class CompressEncoder implements ImageEncoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Bitmap.CompressFormat mFormat;
+    private final int mQuality;
+
+    public CompressEncoder(Bitmap.CompressFormat format, int quality) {
+        mFormat = format;
+        mQuality = quality;
+    }
+
+    @Override
+    public void encode(Bitmap bitmap, File file) throws IOException {
+        OutputStream ostream = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        try {
+            if (!bitmap.compress(mFormat, mQuality, ostream)) {
+                throw new IOException("Could not compress " + file);
+            }
+        } finally {
+            ostream.close();
+        }
+    }
+
+    @Override
+    public String getExtension() {
+        switch (mFormat) {
+            case JPEG:
+                return ".jpg";
+            case WEBP:
+                return ".webp";
+            default:
+                return ".png";
+        }
+    }
+}
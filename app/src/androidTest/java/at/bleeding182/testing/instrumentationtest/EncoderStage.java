@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import static junit.framework.Assert.fail;
+
+/**
+ * Encodes captured bitmaps on background threads, so the next screen can be captured while the
+ * previous one is still being written.
+ * <p>
+ * At most {@code queueSize} bitmaps are waiting or being encoded at once, {@link #submit} blocks
+ * until a slot is free. This keeps the memory used by pending captures capped. Encoded bitmaps are
+ * handed back to their {@link BitmapPool} and published with {@link ScreenshotPublisher}.
+ * <p>
+ * The encoder is picked with {@code -e screenshotFormat png|webp|jpeg|raw} and
+ * {@code -e screenshotQuality <0-100>}.
+ */
+public class EncoderStage {
+
+    /**
+     * Gets notified about written files.
+     */
+    public interface Callback {
+        void onWritten(File file) throws IOException;
+    }
+
+    private final ImageEncoder mEncoder;
+    private final ExecutorService mExecutor;
+    private final Semaphore mSlots;
+    private final int mQueueSize;
+    private final List<String> mErrors = new ArrayList<>();
+
+    public EncoderStage(int threads, int queueSize) {
+        this(encoderFromArguments(), threads, queueSize);
+    }
+
+    public EncoderStage(ImageEncoder encoder, int threads, int queueSize) {
+        mEncoder = encoder;
+        mQueueSize = queueSize;
+        mSlots = new Semaphore(queueSize);
+        mExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ScreenshotEncoder-" + mCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static ImageEncoder encoderFromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String format = arguments != null ? arguments.getString("screenshotFormat") : null;
+        String quality = arguments != null ? arguments.getString("screenshotQuality") : null;
+        int level = quality != null ? Integer.parseInt(quality) : 100;
+        if (format == null || "png".equals(format)) {
+            return new CompressEncoder(Bitmap.CompressFormat.PNG, level);
+        } else if ("webp".equals(format)) {
+            return new CompressEncoder(Bitmap.CompressFormat.WEBP, level);
+        } else if ("jpeg".equals(format)) {
+            return new CompressEncoder(Bitmap.CompressFormat.JPEG, level);
+        } else if ("raw".equals(format)) {
+            return new RawEncoder();
+        }
+        throw new IllegalArgumentException("Unknown screenshotFormat " + format);
+    }
+
+    /**
+     * @return the extension of the files written by this stage, including the dot
+     */
+    public String getExtension() {
+        return mEncoder.getExtension();
+    }
+
+    /**
+     * Queues a bitmap to be written, blocking while the queue is full.
+     *
+     * @param bitmap the bitmap to write, owned by the stage from now on
+     * @param file   the file to write to, without extension
+     * @param pool   the pool to return the bitmap to
+     */
+    public void submit(Bitmap bitmap, File file, BitmapPool pool) {
+        submit(bitmap, file, pool, null);
+    }
+
+    /**
+     * Queues a bitmap to be written, blocking while the queue is full.
+     *
+     * @param bitmap   the bitmap to write, owned by the stage from now on
+     * @param file     the file to write to, without extension
+     * @param pool     the pool to return the bitmap to
+     * @param callback notified on the encoder thread once the file is written, before it is
+     *                 published to the host, may be null
+     */
+    public void submit(final Bitmap bitmap, File file, final BitmapPool pool, final Callback callback) {
+        final File target = new File(file.getPath() + mEncoder.getExtension());
+        final String run = PhaseTracer.get().getRun();
+        mSlots.acquireUninterruptibly();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                PhaseTracer.get().attach(run);
+                try {
+                    long start = Tracing.begin("encode");
+                    try {
+                        mEncoder.encode(bitmap, target);
+                    } finally {
+                        Tracing.end("encode", start);
+                    }
+                    if (callback != null) {
+                        callback.onWritten(target);
+                    }
+                    ScreenshotPublisher.publish(target);
+                } catch (IOException | RuntimeException e) {
+                    Log.e("LocalizationTest", "Could not write " + target, e);
+                    synchronized (mErrors) {
+                        mErrors.add(target + ": " + e.getMessage());
+                    }
+                } finally {
+                    PhaseTracer.get().detach();
+                    pool.release(bitmap);
+                    mSlots.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until every submitted bitmap is written and fails if any of them could not be.
+     */
+    public void await() {
+        mSlots.acquireUninterruptibly(mQueueSize);
+        mSlots.release(mQueueSize);
+        synchronized (mErrors) {
+            if (!mErrors.isEmpty()) {
+                String errors = mErrors.toString();
+                mErrors.clear();
+                fail("Could not write screenshots: " + errors);
+            }
+        }
+    }
+}
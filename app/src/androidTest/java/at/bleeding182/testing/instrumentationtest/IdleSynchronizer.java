@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.fail;
+
+/**
+ * Waits for the app under test to settle instead of sleeping for a fixed amount of time.
+ * <p>
+ * The app counts as settled once the main looper is idle, no view of a resumed activity has a
+ * pending layout, draw or running animation and every additional {@link Condition} holds.
+ */
+public class IdleSynchronizer {
+
+    private static final long DEFAULT_TIMEOUT = 5 * 1000;
+
+    /**
+     * A check that has to pass before the app counts as settled. Evaluated on the main thread.
+     */
+    public interface Condition {
+        boolean isSatisfied();
+    }
+
+    private final Instrumentation mInstrumentation;
+    private final long mTimeout;
+    private long mLastWait;
+
+    /**
+     * Uses the timeout passed as {@code -e idleTimeout <ms>}, or 5 seconds.
+     */
+    public IdleSynchronizer(Instrumentation instrumentation) {
+        this(instrumentation, timeoutFromArguments());
+    }
+
+    public IdleSynchronizer(Instrumentation instrumentation, long timeout) {
+        mInstrumentation = instrumentation;
+        mTimeout = timeout;
+    }
+
+    private static long timeoutFromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String timeout = arguments != null ? arguments.getString("idleTimeout") : null;
+        return timeout != null ? Long.parseLong(timeout) : DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Blocks until the app is settled and fails the test if it does not settle within the timeout.
+     *
+     * @param label      name of the wait, used for logging
+     * @param conditions additional checks that have to pass
+     * @return the time the wait actually took in milliseconds
+     */
+    public long waitForIdle(String label, Condition... conditions) {
+        final long start = SystemClock.uptimeMillis();
+        final long deadline = start + mTimeout;
+        long trace = Tracing.begin("idle");
+        try {
+            while (true) {
+                mInstrumentation.waitForIdleSync();
+                if (isSettled(conditions)) {
+                    break;
+                }
+                if (SystemClock.uptimeMillis() >= deadline) {
+                    fail(label + ": app did not settle within " + mTimeout + "ms");
+                }
+                waitForNextFrame(deadline);
+            }
+        } finally {
+            Tracing.end("idle", trace);
+        }
+        mLastWait = SystemClock.uptimeMillis() - start;
+        Log.d("LocalizationTest", "Idle wait '" + label + "' took " + mLastWait + "ms");
+        return mLastWait;
+    }
+
+    /**
+     * @return the time the last successful {@link #waitForIdle(String, Condition...)} took in milliseconds
+     */
+    public long getLastWait() {
+        return mLastWait;
+    }
+
+    private boolean isSettled(final Condition... conditions) {
+        final boolean[] settled = new boolean[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Collection<Activity> activities = ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED);
+                for (Activity activity : activities) {
+                    if (!isViewSettled(activity.getWindow().getDecorView())) {
+                        return;
+                    }
+                }
+                for (Condition condition : conditions) {
+                    if (!condition.isSatisfied()) {
+                        return;
+                    }
+                }
+                settled[0] = true;
+            }
+        });
+        return settled[0];
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static boolean isViewSettled(View root) {
+        // layout requests propagate up to the root, so checking it once is enough
+        if (root.isLayoutRequested()) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && root.isDirty()) {
+            return false;
+        }
+        return !isAnimating(root);
+    }
+
+    private static boolean isAnimating(View view) {
+        Animation animation = view.getAnimation();
+        if (animation != null && animation.hasStarted() && !animation.hasEnded()) {
+            return true;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            if (group.getLayoutTransition() != null && group.getLayoutTransition().isRunning()) {
+                return true;
+            }
+            for (int i = 0; i < group.getChildCount(); i++) {
+                if (isAnimating(group.getChildAt(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void waitForNextFrame(long deadline) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        latch.countDown();
+                    }
+                });
+            }
+        });
+        try {
+            latch.await(Math.max(0, deadline - SystemClock.uptimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Passes once an activity of the app under test is resumed.
+     */
+    public static Condition activityResumed() {
+        return new Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return !ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED).isEmpty();
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+/**
+ * Looks for overflowing and truncated text in {@code activity_main} without capturing a single
+ * pixel.
+ * <p>
+ * The layout is inflated, measured and laid out for every locale and the {@link PseudoLocales} at
+ * the narrowest phone width, the device width and on both sides of every width qualifier of the
+ * resource index, so each set of dimens gets checked at its tightest width. The layouts are never
+ * drawn, so the scan takes a fraction of a screenshot run. Problems are written to
+ * {@code /sdcard/test/overflow.txt} and fail the test.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class LayoutOverflowScan {
+
+    /** The narrowest width a phone is guaranteed to have. */
+    private static final int MIN_WIDTH_DP = 320;
+
+    @Test
+    public void scanLayouts() throws IOException {
+        DisplayMetrics metrics = InstrumentationRegistry.getTargetContext().getResources().getDisplayMetrics();
+        SortedSet<Integer> widthsDp = new TreeSet<>();
+        widthsDp.add(MIN_WIDTH_DP);
+        widthsDp.add((int) (metrics.widthPixels / metrics.density));
+        for (int widthDp : ResourceIndex.get().getWidthsDp()) {
+            widthsDp.add(widthDp - 1);
+            widthsDp.add(widthDp);
+        }
+        final int height = Math.max(metrics.widthPixels, metrics.heightPixels);
+
+        final LayoutRenderer layout = new LayoutRenderer(InstrumentationRegistry.getTargetContext(),
+                R.layout.activity_main, R.style.AppTheme, new LayoutRenderer.Binder() {
+            @Override
+            public void bind(View view) {
+                MainActivity.bind(view, new MockModule().provideRandomInt());
+                PseudoLocales.apply(view);
+            }
+        });
+        List<Locale> locales = new ArrayList<>(Screenshots.locales());
+        locales.addAll(PseudoLocales.all());
+
+        RenderExecutor executor = new RenderExecutor();
+        List<Future<List<String>>> jobs = new ArrayList<>();
+        PhaseTracer.get().startRun("overflow");
+        long start = SystemClock.uptimeMillis();
+        for (final Locale locale : locales) {
+            for (final int widthDp : widthsDp) {
+                final int width = (int) Math.ceil(widthDp * metrics.density);
+                jobs.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        long trace = Tracing.begin("scan");
+                        try {
+                            List<String> issues = new ArrayList<>();
+                            for (String issue : new OverflowScanner().scan(layout.inflate(locale, width, height))) {
+                                issues.add(locale + "\t" + widthDp + "dp\t" + issue);
+                            }
+                            return issues;
+                        } finally {
+                            Tracing.end("scan", trace);
+                        }
+                    }
+                }));
+            }
+        }
+        List<String> issues = new ArrayList<>();
+        for (Future<List<String>> job : jobs) {
+            try {
+                issues.addAll(job.get());
+            } catch (ExecutionException e) {
+                throw new AssertionError("Scanning failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted");
+            }
+        }
+        executor.shutdown();
+        Log.d("LocalizationTest", "Scanned " + jobs.size() + " layouts on " + executor.getThreads()
+                + " threads in " + (SystemClock.uptimeMillis() - start) + "ms");
+
+        File report = new File("/sdcard/test/overflow.txt");
+        assertEquals("Could not create directory", true, report.getParentFile().mkdirs() || report.getParentFile().exists());
+        Writer writer = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+        try {
+            for (String issue : issues) {
+                writer.write(issue + "\n");
+                Log.w("LocalizationTest", issue);
+            }
+        } finally {
+            writer.close();
+        }
+        PhaseTracer.get().writeSummary(new File("/sdcard/test/overflow-phases.json"));
+        if (!issues.isEmpty()) {
+            fail(issues.size() + " text views don't fit, see " + report);
+        }
+    }
+}
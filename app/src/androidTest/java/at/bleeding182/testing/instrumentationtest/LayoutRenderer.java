@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.StyleRes;
+import android.util.DisplayMetrics;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.Locale;
+
+/**
+ * Renders a layout into a {@link Bitmap} without starting an activity.
+ * <p>
+ * The layout is inflated against a context configured for the requested locale and size, bound
+ * with the same logic the activity uses and then measured, laid out and drawn off-screen.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class LayoutRenderer {
+
+    /**
+     * Fills an inflated layout with data, e.g. {@link MainActivity#bind(View, int)}.
+     */
+    public interface Binder {
+        void bind(View view);
+    }
+
+    private final Context mContext;
+    private final int mLayout;
+    private final int mTheme;
+    private final Binder mBinder;
+
+    public LayoutRenderer(Context context, @LayoutRes int layout, @StyleRes int theme, Binder binder) {
+        mContext = context;
+        mLayout = layout;
+        mTheme = theme;
+        mBinder = binder;
+    }
+
+    /**
+     * Creates a themed context that resolves resources for the given locale and size.
+     */
+    public Context createContext(Locale locale, int width, int height) {
+        DisplayMetrics metrics = mContext.getResources().getDisplayMetrics();
+        Configuration config = new Configuration(mContext.getResources().getConfiguration());
+        config.setLocale(locale);
+        config.screenWidthDp = (int) (width / metrics.density);
+        config.screenHeightDp = (int) (height / metrics.density);
+        config.smallestScreenWidthDp = Math.min(config.screenWidthDp, config.screenHeightDp);
+        config.orientation = width > height
+                ? Configuration.ORIENTATION_LANDSCAPE : Configuration.ORIENTATION_PORTRAIT;
+        return new ContextThemeWrapper(mContext.createConfigurationContext(config), mTheme);
+    }
+
+    /**
+     * Inflates, binds, measures and lays out the layout.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return the laid out, detached view hierarchy
+     */
+    public View inflate(Locale locale, int width, int height) {
+        return inflate(createContext(locale, width, height), width, height);
+    }
+
+    private View inflate(Context context, int width, int height) {
+        View view = LayoutInflater.from(context).inflate(mLayout, null);
+        mBinder.bind(view);
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+        return view;
+    }
+
+    /**
+     * Renders the layout on top of the theme's window background.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return a new bitmap of the given size
+     */
+    public Bitmap render(Locale locale, int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        render(locale, new Canvas(bitmap), width, height);
+        return bitmap;
+    }
+
+    /**
+     * Renders the layout into an existing canvas of at least the given size.
+     */
+    public void render(Locale locale, Canvas canvas, int width, int height) {
+        Context context = createContext(locale, width, height);
+        View view = inflate(context, width, height);
+
+        TypedArray a = context.obtainStyledAttributes(new int[]{android.R.attr.windowBackground});
+        Drawable background = a.getDrawable(0);
+        a.recycle();
+        if (background != null) {
+            background.setBounds(0, 0, width, height);
+            background.draw(canvas);
+        }
+        view.draw(canvas);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Renders {@code activity_main} for every locale in portrait, landscape and every width qualifier
+ * of the resource index without launching {@link MainActivity}.
+ * <p>
+ * The layouts are rendered in parallel on a {@link RenderExecutor} and encoded in parallel by an
+ * {@link EncoderStage}.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class LayoutScreenshots {
+
+    @Test
+    public void renderLayouts() throws IOException {
+        DisplayMetrics metrics = InstrumentationRegistry.getTargetContext().getResources().getDisplayMetrics();
+        List<int[]> sizes = new ArrayList<>();
+        sizes.add(new int[]{metrics.widthPixels, metrics.heightPixels});
+        sizes.add(new int[]{metrics.heightPixels, metrics.widthPixels});
+        // cover the width qualifiers the device doesn't reach on its own
+        int shortSide = Math.min(metrics.widthPixels, metrics.heightPixels);
+        int longSide = Math.max(metrics.widthPixels, metrics.heightPixels);
+        for (int widthDp : ResourceIndex.get().getWidthsDp()) {
+            int width = (int) Math.ceil(widthDp * metrics.density);
+            if (width > longSide) {
+                sizes.add(new int[]{width, shortSide});
+            }
+        }
+        final LayoutRenderer layout = new LayoutRenderer(InstrumentationRegistry.getTargetContext(),
+                R.layout.activity_main, R.style.AppTheme, new LayoutRenderer.Binder() {
+            @Override
+            public void bind(View view) {
+                MainActivity.bind(view, new MockModule().provideRandomInt());
+            }
+        });
+
+        RenderExecutor renderer = new RenderExecutor();
+        int cores = Runtime.getRuntime().availableProcessors();
+        final EncoderStage encoder = new EncoderStage(Math.max(1, cores - 1), cores);
+        // one bitmap of the largest size per render thread and per encoder slot
+        long largest = 0;
+        for (int[] size : sizes) {
+            largest = Math.max(largest, (long) size[0] * size[1]);
+        }
+        final BitmapPool pool = new BitmapPool((renderer.getThreads() + cores) * largest * 4);
+        final CapturePruner pruner = new CapturePruner(
+                new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "layout-pruner"));
+        final RunJournal journal = RunJournal.fromArguments(new File("/sdcard/test/layout-journal.txt"));
+        List<Future<?>> jobs = new ArrayList<>();
+        // the renders interleave, so all of them count as one run
+        PhaseTracer.get().startRun("layouts");
+        long start = SystemClock.uptimeMillis();
+        try {
+            for (final Locale locale : Screenshots.locales()) {
+                for (final int[] size : sizes) {
+                    final File file = new File("/sdcard/test/" + locale.getLanguage() + "/layout_main_"
+                            + size[0] + "x" + size[1]);
+                    assertEquals("Could not create directory", true, file.getParentFile().mkdirs() || file.getParentFile().exists());
+
+                    // render each set of equivalent configurations once
+                    final String key = layoutKey(layout.createContext(locale, size[0], size[1]).getResources(),
+                            size, encoder.getExtension());
+                    final File target = new File(file.getPath() + encoder.getExtension());
+                    final EncoderStage.Callback journalEntry = new EncoderStage.Callback() {
+                        @Override
+                        public void onWritten(File written) throws IOException {
+                            if (journal != null) {
+                                journal.record(locale, file.getName(), key, written);
+                            }
+                        }
+                    };
+                    if (journal != null && journal.isDone(target, key)) {
+                        ScreenshotPublisher.publish(target);
+                        continue;
+                    }
+                    if (!pruner.claim(key, target, journalEntry)) {
+                        continue;
+                    }
+
+                    jobs.add(renderer.render(layout, locale, size[0], size[1], pool, new RenderExecutor.Output() {
+                        @Override
+                        public void onRendered(Bitmap bitmap) {
+                            encoder.submit(bitmap, file, pool, new EncoderStage.Callback() {
+                                @Override
+                                public void onWritten(File written) throws IOException {
+                                    journalEntry.onWritten(written);
+                                    pruner.written(key, written);
+                                }
+                            });
+                        }
+                    }));
+                }
+            }
+            for (Future<?> job : jobs) {
+                try {
+                    job.get();
+                } catch (ExecutionException e) {
+                    throw new AssertionError("Rendering failed: " + e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AssertionError("Interrupted");
+                }
+            }
+        } finally {
+            // lets the queued encodes finish and stops the threads even if a render failed
+            renderer.shutdown();
+            try {
+                encoder.await();
+            } finally {
+                if (journal != null) {
+                    journal.close();
+                }
+            }
+        }
+        Log.d("LocalizationTest", "Rendered " + jobs.size() + " layouts on " + renderer.getThreads()
+                + " threads in " + (SystemClock.uptimeMillis() - start) + "ms");
+        pruner.writeStats(new File("/sdcard/test/layout-pruning.txt"));
+        PhaseTracer.get().writeSummary(new File("/sdcard/test/phases.json"));
+    }
+
+    private static String layoutKey(Resources resources, int[] size, String extension) {
+        return new CaptureKey()
+                .app(InstrumentationRegistry.getTargetContext())
+                .strings(resources)
+                .dimens(resources)
+                .layout(resources, R.layout.activity_main)
+                .device(resources)
+                .locale(resources)
+                .add(size[0] + "x" + size[1])
+                .add(new MockModule().toString())
+                .add(extension)
+                .build();
+    }
+}
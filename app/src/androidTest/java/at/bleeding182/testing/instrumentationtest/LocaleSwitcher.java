@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Switches the locale of the app under test without restarting it.
+ * <p>
+ * One call applies the locale to the default locale, the resources of the target and the
+ * application context and clears the label cache of the package manager, so activity titles are
+ * loaded in the new locale as well. The hidden framework hooks are looked up once per process and
+ * skipped on API levels that don't have them. Every switch is timed.
+ */
+public final class LocaleSwitcher {
+
+    private static boolean sResolved;
+    private static Object sActivityThread;
+    private static Method sApplyConfigurationToResources;
+    private static Method sConfigurationChanged;
+
+    private static final List<Long> sSwitchTimes = Collections.synchronizedList(new ArrayList<Long>());
+
+    private LocaleSwitcher() {
+    }
+
+    /**
+     * Applies the locale to the app the context belongs to.
+     *
+     * @return the time the switch took in nanoseconds
+     */
+    public static long switchTo(Context context, Locale locale) {
+        long start = System.nanoTime();
+        resolve();
+
+        Locale.setDefault(locale);
+        Resources appResources = context.getApplicationContext().getResources();
+        Configuration config = withLocale(appResources.getConfiguration(), locale);
+
+        if (sApplyConfigurationToResources != null) {
+            // updates every Resources instance of the process, including the ones of running activities
+            invoke(sApplyConfigurationToResources, sActivityThread, config);
+        }
+        applyTo(appResources, locale);
+        if (context.getResources() != appResources) {
+            applyTo(context.getResources(), locale);
+        }
+        if (sConfigurationChanged != null) {
+            // drops the cached activity labels
+            invoke(sConfigurationChanged, null);
+        }
+
+        long duration = System.nanoTime() - start;
+        sSwitchTimes.add(duration);
+        Log.d("LocalizationTest", "Switched to " + locale + " in " + duration / 1000 + "us");
+        return duration;
+    }
+
+    /**
+     * Applies the locale to a single {@link Resources} instance.
+     */
+    public static void applyTo(Resources resources, Locale locale) {
+        resources.updateConfiguration(withLocale(resources.getConfiguration(), locale), resources.getDisplayMetrics());
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static Configuration withLocale(Configuration base, Locale locale) {
+        Configuration config = new Configuration(base);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            // also updates the layout direction
+            config.setLocale(locale);
+        } else {
+            config.locale = locale;
+        }
+        return config;
+    }
+
+    /**
+     * @return the duration of every switch so far in nanoseconds
+     */
+    public static List<Long> getSwitchTimes() {
+        synchronized (sSwitchTimes) {
+            return new ArrayList<>(sSwitchTimes);
+        }
+    }
+
+    private static synchronized void resolve() {
+        if (sResolved) {
+            return;
+        }
+        sResolved = true;
+        ClassLoader classLoader = LocaleSwitcher.class.getClassLoader();
+        try {
+            Class<?> activityThread = classLoader.loadClass("android.app.ActivityThread");
+            sActivityThread = activityThread.getMethod("currentActivityThread").invoke(null);
+            sApplyConfigurationToResources = activityThread
+                    .getMethod("applyConfigurationToResources", Configuration.class);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException e) {
+            Log.w("LocalizationTest", "ActivityThread.applyConfigurationToResources not available", e);
+            sApplyConfigurationToResources = null;
+        }
+        try {
+            sConfigurationChanged = classLoader.loadClass("android.app.ApplicationPackageManager")
+                    .getDeclaredMethod("configurationChanged");
+            sConfigurationChanged.setAccessible(true);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            Log.w("LocalizationTest", "ApplicationPackageManager.configurationChanged not available", e);
+        }
+    }
+
+    private static void invoke(Method method, Object receiver, Object... args) {
+        try {
+            method.invoke(receiver, args);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not call " + method, e);
+        }
+    }
+}
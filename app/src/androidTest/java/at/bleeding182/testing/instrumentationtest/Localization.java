@@ -31,31 +31,25 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
-import android.content.res.Resources;
 import android.os.Build;
 import android.support.test.InstrumentationRegistry;
-import android.support.test.uiautomator.By;
 import android.support.test.uiautomator.UiDevice;
-import android.support.test.uiautomator.UiSelector;
-import android.support.test.uiautomator.Until;
 import android.util.Log;
 
 import junit.framework.Assert;
 
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
 
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.fail;
 
 /**
@@ -64,59 +58,65 @@ import static org.junit.Assert.fail;
 @RunWith(Parameterized.class)
 public class Localization {
 
-    private static final long LAUNCH_TIMEOUT = 5 * 1000;
+    @Rule
+    public final MemoryRule mMemory = new MemoryRule(null, 0);
+
     private final Locale mLocale;
     private UiDevice mDevice;
+    private IdleSynchronizer mSynchronizer;
+    private ActivityLauncher mLauncher;
 
     @Parameterized.Parameters(name = "Locale: {0}")
     public static Collection<Locale> locales() {
-        return Arrays.asList(
-                new Locale("de"),
-                new Locale("en"),
-                new Locale("fr")
-        );
+        return Locales.filter(Locales.all(), InstrumentationRegistry.getArguments().getString("locales"));
     }
 
     public void log(String text) {
         Log.d("LocalizationTest", text);
     }
 
-    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
-    public Localization(Locale locale) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException, ClassNotFoundException {
+    public Localization(Locale locale) {
         Context context = InstrumentationRegistry.getTargetContext();
         log(context.toString());
         log(context.getApplicationContext().toString());
 
         mLocale = locale;
-        Configuration config = new Configuration();
-        Locale.setDefault(mLocale);
-        config.setLocale(mLocale);
+        PhaseTracer.get().startRun(mLocale + "/localization");
+        long start = Tracing.begin("localeSwitch");
+        try {
+            LocaleSwitcher.switchTo(context, mLocale);
+        } finally {
+            Tracing.end("localeSwitch", start);
+        }
+    }
 
-        Object thread = getClass().getClassLoader()
-                .loadClass("android.app.ActivityThread")
-                .getMethod("currentActivityThread")
-                .invoke(null);
-        Method method = getClass().getClassLoader()
-                .loadClass("android.app.ActivityThread")
-                .getMethod("applyConfigurationToResources", Configuration.class);
-        method.invoke(thread, config);
+    @AfterClass
+    public static void writePhases() throws IOException {
+        PhaseTracer.get().writeSummary(new File("/sdcard/test/phases.json"));
     }
 
     @Before
     public void setupTest() {
         Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
         mDevice = UiDevice.getInstance(instrumentation);
+        mSynchronizer = new IdleSynchronizer(instrumentation);
+        mLauncher = new ActivityLauncher(instrumentation, mDevice, mSynchronizer);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
     @Test
     public void makeScreenshot() throws IOException {
-        launchActivity();
+        long start = Tracing.begin("launch");
+        try {
+            launchActivity();
+        } finally {
+            Tracing.end("launch", start);
+        }
         Context context = InstrumentationRegistry.getTargetContext();
         PackageManager pm = context.getPackageManager();
         CharSequence text = pm.getText(context.getPackageName(), R.string.app_name, context.getApplicationInfo());
 
-        Assert.assertEquals(get(), text.toString());
+        Assert.assertEquals(expected(R.string.app_name), text.toString());
 
         Assert.assertEquals("Target Context wrong locale", mLocale.toString(),
                 context.getResources().getConfiguration().locale.toString());
@@ -124,32 +124,31 @@ public class Localization {
         Assert.assertEquals("App Context wrong locale", mLocale.toString(),
                 context.getApplicationContext().getResources().getConfiguration().locale.toString());
 
-        // Check the toolbar for the right localization, will fail for every run after the first
-        Assert.assertTrue(get() + " not found", mDevice.findObject(new UiSelector().text(get())).waitForExists(500));
+        // Check the toolbar and the content for the right localization
+        start = Tracing.begin("verify");
+        StringVerifier.Report report;
+        try {
+            report = new StringVerifier(InstrumentationRegistry.getInstrumentation(), context, mLocale)
+                    .expect(R.string.app_name, R.string.hello)
+                    .verify();
+        } finally {
+            Tracing.end("verify", start);
+        }
+        Assert.assertTrue(report.toString(), report.isClean());
     }
 
-    public String get() {
-        switch (mLocale.toString()) {
-            case "en":
-                return "English";
-            case "de":
-                return "Deutsch";
-            case "fr":
-                return "French";
-        }
-        return "";
+    /**
+     * @return the value of the string in the tested locale, independent of the state of the app
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private String expected(int id) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.setLocale(mLocale);
+        return context.createConfigurationContext(config).getString(id);
     }
 
     private void launchActivity() {
-        // Start from the home screen
-        mDevice.pressHome();
-
-        // Wait for launcher
-        final String launcherPackage = mDevice.getLauncherPackageName();
-        assertThat(launcherPackage, notNullValue());
-        mDevice.wait(Until.hasObject(By.pkg(launcherPackage).depth(0)), LAUNCH_TIMEOUT);
-
-        // Launch the app
         Context context = InstrumentationRegistry.getContext();
         Intent intent = context.getPackageManager().getLaunchIntentForPackage(BuildConfig.APPLICATION_ID);
         try {
@@ -175,20 +174,6 @@ public class Localization {
             fail(e.getMessage());
         }
 
-        // Clear out any previous instances
-        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        context.startActivity(intent);
-
-        // Wait for the app to appear
-        mDevice.wait(Until.hasObject(By.pkg(BuildConfig.APPLICATION_ID).depth(0)), LAUNCH_TIMEOUT);
-        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-        try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        mLauncher.launch(mLocale, false);
     }
 }
-
@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.lifecycle.ActivityLifecycleCallback;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.util.Log;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the memory of long parameterized runs flat and reports where it grows.
+ * <p>
+ * Resources a test registers with {@link #autoRelease(Closeable)} are closed once it finished,
+ * whether it passed or not. Before and after every test the Java heap, native heap and the bitmaps
+ * of a {@link BitmapPool} are sampled and appended to {@code /sdcard/test/memory.txt} in kB. After a
+ * forced garbage collection, activities destroyed during an earlier test that are still reachable
+ * and bitmaps that were never handed back to the pool are flagged in that file and in the log.
+ * <p>
+ * {@code -e memoryCheck off} skips the sampling and the garbage collections.
+ */
+public class MemoryRule implements TestRule {
+
+    private static final File REPORT = new File("/sdcard/test/memory.txt");
+
+    /**
+     * Activities destroyed so far, with the test they were destroyed in.
+     */
+    private static final List<Destroyed> sDestroyed = new ArrayList<>();
+    /**
+     * Held here, the registry only keeps weak references to its callbacks.
+     */
+    private static final ActivityLifecycleCallback sCallback = new ActivityLifecycleCallback() {
+        @Override
+        public void onActivityLifecycleChanged(Activity activity, Stage stage) {
+            if (stage == Stage.DESTROYED) {
+                synchronized (MemoryRule.class) {
+                    sDestroyed.add(new Destroyed(activity, sCurrentTest));
+                }
+            }
+        }
+    };
+    private static boolean sStarted;
+    private static String sCurrentTest;
+
+    private static class Destroyed {
+        final WeakReference<Activity> mActivity;
+        final String mName;
+        final String mTest;
+
+        Destroyed(Activity activity, String test) {
+            mActivity = new WeakReference<>(activity);
+            mName = activity.getClass().getSimpleName();
+            mTest = test;
+        }
+    }
+
+    private final BitmapPool mPool;
+    private final int mPendingBitmaps;
+    private final boolean mEnabled;
+    private final List<Closeable> mResources = new ArrayList<>();
+
+    /**
+     * @param pool           the pool the test takes its bitmaps from, or null
+     * @param pendingBitmaps how many bitmaps may still be queued for writing after a test
+     */
+    public MemoryRule(BitmapPool pool, int pendingBitmaps) {
+        mPool = pool;
+        mPendingBitmaps = pendingBitmaps;
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        mEnabled = arguments == null || !"off".equals(arguments.getString("memoryCheck"));
+    }
+
+    /**
+     * Closes the resource after the current test.
+     *
+     * @return the resource
+     */
+    public <T extends Closeable> T autoRelease(T resource) {
+        mResources.add(resource);
+        return resource;
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                String test = description.getMethodName();
+                start(test);
+                long[] before = mEnabled ? sample() : null;
+                try {
+                    base.evaluate();
+                } finally {
+                    release();
+                    if (mEnabled) {
+                        collectGarbage();
+                        report(test, before, sample(), retained(test));
+                    }
+                }
+            }
+        };
+    }
+
+    private static synchronized void start(String test) throws IOException {
+        if (!sStarted) {
+            sStarted = true;
+            ActivityLifecycleMonitorRegistry.getInstance().addLifecycleCallback(sCallback);
+            REPORT.getParentFile().mkdirs();
+            write("test\tjavaBefore\tjavaAfter\tnativeBefore\tnativeAfter\tbitmapsBefore\tbitmapsAfter"
+                    + "\tretained\n", false);
+        }
+        sCurrentTest = test;
+    }
+
+    private void release() {
+        for (int i = mResources.size() - 1; i >= 0; i--) {
+            try {
+                mResources.get(i).close();
+            } catch (IOException | RuntimeException e) {
+                Log.w("LocalizationTest", "Could not release " + mResources.get(i), e);
+            }
+        }
+        mResources.clear();
+    }
+
+    /**
+     * @return Java heap, native heap and bitmap bytes
+     */
+    private long[] sample() {
+        Runtime runtime = Runtime.getRuntime();
+        return new long[]{runtime.totalMemory() - runtime.freeMemory(), Debug.getNativeHeapAllocatedSize(),
+                mPool != null ? mPool.getPooledBytes() + mPool.getOutstandingBytes() : 0};
+    }
+
+    private static void collectGarbage() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+    }
+
+    private List<String> retained(String test) {
+        List<String> retained = new ArrayList<>();
+        synchronized (MemoryRule.class) {
+            for (Iterator<Destroyed> iterator = sDestroyed.iterator(); iterator.hasNext(); ) {
+                Destroyed destroyed = iterator.next();
+                if (destroyed.mActivity.get() == null) {
+                    iterator.remove();
+                } else if (!test.equals(destroyed.mTest)) {
+                    // only reported once, the test it was destroyed in had the chance to let go of it
+                    retained.add(destroyed.mName + " destroyed in " + destroyed.mTest);
+                    iterator.remove();
+                }
+            }
+        }
+        int bitmaps = mPool != null ? mPool.getOutstanding() - mPendingBitmaps : 0;
+        if (bitmaps > 0) {
+            retained.add(bitmaps + " bitmaps not returned to the pool");
+        }
+        return retained;
+    }
+
+    private static void report(String test, long[] before, long[] after, List<String> retained) throws IOException {
+        StringBuilder line = new StringBuilder(test);
+        for (int i = 0; i < before.length; i++) {
+            line.append('\t').append(before[i] / 1024).append('\t').append(after[i] / 1024);
+        }
+        line.append('\t').append(retained.isEmpty() ? "-" : retained.toString()).append('\n');
+        if (!retained.isEmpty()) {
+            Log.w("LocalizationTest", "Retained after " + test + ": " + retained);
+        }
+        Log.d("LocalizationTest", "Memory in kB (java, native, bitmaps before and after): " + line.toString().trim());
+        write(line.toString(), true);
+    }
+
+    private static void write(String text, boolean append) throws IOException {
+        Writer writer = new FileWriter(REPORT, append);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times small pieces of the screenshot pipeline on the device.
+ * <p>
+ * Every benchmark is run a few times to warm up and then timed per call. The results are written in
+ * the JSON format of JMH, so device and host numbers can be compared across commits with the same
+ * tooling. The number of timed calls can be changed with {@code -e benchmarkIterations <n>}.
+ */
+public class Microbenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 20;
+
+    /**
+     * The code to time, called once per iteration.
+     */
+    public interface Body {
+        void run() throws Exception;
+    }
+
+    private final String mPrefix;
+    private final int mWarmup;
+    private final int mIterations;
+    private final List<String> mResults = new ArrayList<>();
+
+    /**
+     * @param prefix the name the benchmarks are grouped under
+     */
+    public Microbenchmark(String prefix) {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String iterations = arguments != null ? arguments.getString("benchmarkIterations") : null;
+        mPrefix = prefix;
+        mIterations = iterations != null ? Integer.parseInt(iterations) : DEFAULT_ITERATIONS;
+        mWarmup = Math.max(1, mIterations / 4);
+    }
+
+    /**
+     * Runs and times the body.
+     *
+     * @return the mean time per call in microseconds
+     */
+    public double measure(String name, Body body) throws Exception {
+        for (int i = 0; i < mWarmup; i++) {
+            body.run();
+        }
+        double[] times = new double[mIterations];
+        for (int i = 0; i < mIterations; i++) {
+            long start = System.nanoTime();
+            body.run();
+            times[i] = (System.nanoTime() - start) / 1000.0;
+        }
+
+        double sum = 0;
+        for (double time : times) {
+            sum += time;
+        }
+        double mean = sum / times.length;
+        double squares = 0;
+        for (double time : times) {
+            squares += (time - mean) * (time - mean);
+        }
+        // half width of the 99.9% confidence interval like JMH, with the normal approximation
+        double error = times.length > 1 ? 3.29 * Math.sqrt(squares / (times.length - 1)) / Math.sqrt(times.length) : 0;
+        double[] sorted = times.clone();
+        Arrays.sort(sorted);
+
+        Log.i("LocalizationTest", String.format(Locale.US, "Benchmark %s: %.1f ± %.1f us/op", name, mean, error));
+        mResults.add(String.format(Locale.US, "    {\n"
+                        + "        \"benchmark\" : \"%s.%s\",\n"
+                        + "        \"mode\" : \"avgt\",\n"
+                        + "        \"warmupIterations\" : %d,\n"
+                        + "        \"measurementIterations\" : %d,\n"
+                        + "        \"primaryMetric\" : {\n"
+                        + "            \"score\" : %.3f,\n"
+                        + "            \"scoreError\" : %.3f,\n"
+                        + "            \"scorePercentiles\" : {\n"
+                        + "                \"0.0\" : %.3f,\n"
+                        + "                \"50.0\" : %.3f,\n"
+                        + "                \"95.0\" : %.3f,\n"
+                        + "                \"100.0\" : %.3f\n"
+                        + "            },\n"
+                        + "            \"scoreUnit\" : \"us/op\"\n"
+                        + "        }\n"
+                        + "    }",
+                mPrefix, name, mWarmup, mIterations, mean, error, sorted[0], percentile(sorted, 50),
+                percentile(sorted, 95), sorted[sorted.length - 1]));
+        return mean;
+    }
+
+    private static double percentile(double[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile / 100.0) - 1)];
+    }
+
+    public void writeJson(File file) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < mResults.size(); i++) {
+            json.append(mResults.get(i)).append(i < mResults.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.content.res.Resources;
+import android.graphics.Rect;
+import android.text.Layout;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds text that does not fit into a laid out view hierarchy without drawing it.
+ * <p>
+ * A {@link TextView} is reported if its text is ellipsized, if its text layout is larger than the
+ * space between its paddings or if the view itself reaches outside its parent or the root.
+ */
+public class OverflowScanner {
+
+    /**
+     * @param root a measured and laid out view hierarchy
+     * @return one line per problem, empty if all text fits
+     */
+    public List<String> scan(View root) {
+        List<String> issues = new ArrayList<>();
+        scan(root, root, issues);
+        return issues;
+    }
+
+    private void scan(View view, View root, List<String> issues) {
+        if (view.getVisibility() != View.VISIBLE) {
+            return;
+        }
+        if (view instanceof TextView) {
+            check((TextView) view, root, issues);
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                scan(group.getChildAt(i), root, issues);
+            }
+        }
+    }
+
+    private static void check(TextView view, View root, List<String> issues) {
+        Layout layout = view.getLayout();
+        if (layout == null) {
+            return;
+        }
+        String name = name(view) + " \"" + view.getText() + "\"";
+        for (int line = 0; line < layout.getLineCount(); line++) {
+            if (layout.getEllipsisCount(line) > 0) {
+                issues.add(name + ": ellipsized in line " + (line + 1));
+                break;
+            }
+        }
+
+        int width = view.getWidth() - view.getCompoundPaddingLeft() - view.getCompoundPaddingRight();
+        int height = view.getHeight() - view.getExtendedPaddingTop() - view.getExtendedPaddingBottom();
+        if (layout.getHeight() > height) {
+            issues.add(name + ": clipped, " + layout.getHeight() + "px of text in " + height + "px");
+        }
+        for (int line = 0; line < layout.getLineCount(); line++) {
+            // lines that don't wrap, e.g. with singleLine and without ellipsize
+            if (Math.ceil(layout.getLineWidth(line)) > width) {
+                issues.add(name + ": clipped, line " + (line + 1) + " is " + (int) Math.ceil(layout.getLineWidth(line))
+                        + "px wide in " + width + "px");
+                break;
+            }
+        }
+
+        ViewParent parent = view.getParent();
+        if (parent instanceof View && view != root && !fits(view.getLeft(), view.getTop(),
+                view.getRight(), view.getBottom(), (View) parent)) {
+            issues.add(name + ": outside of its parent " + name((View) parent));
+        }
+        Rect bounds = boundsIn(view, root);
+        if (!fits(bounds.left, bounds.top, bounds.right, bounds.bottom, root)) {
+            issues.add(name + ": outside of the screen at " + bounds.toShortString());
+        }
+    }
+
+    private static boolean fits(int left, int top, int right, int bottom, View parent) {
+        return left >= 0 && top >= 0 && right <= parent.getWidth() && bottom <= parent.getHeight();
+    }
+
+    private static Rect boundsIn(View view, View root) {
+        Rect bounds = new Rect(0, 0, view.getWidth(), view.getHeight());
+        View current = view;
+        while (current != root && current.getParent() instanceof View) {
+            bounds.offset(current.getLeft() - current.getScrollX(), current.getTop() - current.getScrollY());
+            current = (View) current.getParent();
+        }
+        return bounds;
+    }
+
+    private static String name(View view) {
+        if (view.getId() != View.NO_ID) {
+            try {
+                return view.getResources().getResourceEntryName(view.getId());
+            } catch (Resources.NotFoundException e) {
+                // generated id
+            }
+        }
+        return view.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects how long each phase of the tests and the app took, per locale and scenario.
+ * <p>
+ * Phases are timed with {@link Tracing}, so they also show up as sections in a systrace recorded
+ * during the run. A phase counts towards the run started last, or towards the run a background
+ * thread was {@link #attach(String) attached} to. Phases before the first run, like the start of
+ * the app, count towards the first run. Phases may nest, e.g. the idle wait of a launch is counted
+ * both as {@code idle} and as part of {@code launch}.
+ */
+public final class PhaseTracer implements Tracing.Listener {
+
+    private static final PhaseTracer sInstance = new PhaseTracer();
+
+    private final Map<String, Map<String, Long>> mRuns = new LinkedHashMap<>();
+    private final Map<String, Long> mBeforeFirstRun = new TreeMap<>();
+    private final ThreadLocal<String> mAttached = new ThreadLocal<>();
+    private volatile String mRun;
+
+    private PhaseTracer() {
+    }
+
+    public static PhaseTracer get() {
+        return sInstance;
+    }
+
+    /**
+     * Starts collecting the phases of a run, e.g. {@code de/screenshot}.
+     */
+    public void startRun(String run) {
+        Tracing.setListener(this);
+        synchronized (mRuns) {
+            mRun = run;
+            if (!mBeforeFirstRun.isEmpty()) {
+                Map<String, Long> phases = phasesOf(run);
+                for (Map.Entry<String, Long> phase : mBeforeFirstRun.entrySet()) {
+                    add(phases, phase.getKey(), phase.getValue());
+                }
+                mBeforeFirstRun.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the run phases are currently counted towards, or null
+     */
+    public String getRun() {
+        return mRun;
+    }
+
+    /**
+     * Counts the phases of the calling thread towards the given run until {@link #detach()}.
+     */
+    public void attach(String run) {
+        mAttached.set(run);
+    }
+
+    public void detach() {
+        mAttached.remove();
+    }
+
+    @Override
+    public void onPhase(String name, long durationNanos) {
+        String run = mAttached.get();
+        synchronized (mRuns) {
+            if (run == null) {
+                run = mRun;
+            }
+            // before the first test, e.g. the start of the app
+            add(run != null ? phasesOf(run) : mBeforeFirstRun, name, durationNanos);
+        }
+    }
+
+    private Map<String, Long> phasesOf(String run) {
+        Map<String, Long> phases = mRuns.get(run);
+        if (phases == null) {
+            phases = new TreeMap<>();
+            mRuns.put(run, phases);
+        }
+        return phases;
+    }
+
+    private static void add(Map<String, Long> phases, String name, long durationNanos) {
+        Long total = phases.get(name);
+        phases.put(name, (total != null ? total : 0) + durationNanos);
+    }
+
+    /**
+     * Writes the time of every phase per run and the p50 and p95 of every phase across runs as JSON.
+     */
+    public void writeSummary(File file) throws IOException {
+        Map<String, List<Long>> byPhase = new TreeMap<>();
+        StringBuilder runs = new StringBuilder();
+        synchronized (mRuns) {
+            for (Map.Entry<String, Map<String, Long>> run : mRuns.entrySet()) {
+                runs.append(runs.length() > 0 ? ",\n" : "").append("    \"").append(run.getKey()).append("\": {");
+                boolean first = true;
+                for (Map.Entry<String, Long> phase : run.getValue().entrySet()) {
+                    runs.append(first ? "" : ", ").append('"').append(phase.getKey()).append("\": ")
+                            .append(millis(phase.getValue()));
+                    first = false;
+                    List<Long> times = byPhase.get(phase.getKey());
+                    if (times == null) {
+                        times = new ArrayList<>();
+                        byPhase.put(phase.getKey(), times);
+                    }
+                    times.add(phase.getValue());
+                }
+                runs.append('}');
+            }
+        }
+
+        StringBuilder phases = new StringBuilder();
+        for (Map.Entry<String, List<Long>> phase : byPhase.entrySet()) {
+            List<Long> times = phase.getValue();
+            Collections.sort(times);
+            long total = 0;
+            for (long time : times) {
+                total += time;
+            }
+            String stats = "\"runs\": " + times.size() + ", \"p50Ms\": " + millis(percentile(times, 50))
+                    + ", \"p95Ms\": " + millis(percentile(times, 95)) + ", \"totalMs\": " + millis(total);
+            Log.i("LocalizationTest", "Phase " + phase.getKey() + ": " + stats.replace("\"", ""));
+            phases.append(phases.length() > 0 ? ",\n" : "").append("    \"").append(phase.getKey())
+                    .append("\": {").append(stats).append('}');
+        }
+
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("{\n  \"phases\": {\n" + phases + "\n  },\n  \"runs\": {\n" + runs + "\n  }\n}\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        return sorted.get(Math.max(0, (int) Math.ceil(sorted.size() * percentile / 100.0) - 1));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1000000.0);
+    }
+}
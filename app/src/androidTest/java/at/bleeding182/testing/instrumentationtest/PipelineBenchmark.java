@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.uiautomator.UiDevice;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times the device side of the screenshot pipeline and writes the results to
+ * {@code /sdcard/test/benchmark.json}.
+ * <p>
+ * Only runs when asked for, e.g.
+ * {@code adb shell am instrument -w -e benchmark true -e class <package>.PipelineBenchmark <runner>}.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class PipelineBenchmark {
+
+    @Test
+    public void benchmarkPipeline() throws Exception {
+        assumeTrue("true".equals(InstrumentationRegistry.getArguments().getString("benchmark")));
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final List<Locale> locales = Screenshots.locales();
+        final Microbenchmark benchmark = new Microbenchmark("device");
+
+        // the app wide switch Screenshots and Localization start every test with
+        benchmark.measure("localeSwitch", new Microbenchmark.Body() {
+            private int mNext;
+
+            @Override
+            public void run() {
+                LocaleSwitcher.switchTo(context, locales.get(mNext++ % locales.size()));
+            }
+        });
+        // the per context resolution Localization checks its strings with
+        benchmark.measure("localeContext", new Microbenchmark.Body() {
+            private int mNext;
+
+            @Override
+            public void run() {
+                Configuration config = new Configuration(context.getResources().getConfiguration());
+                config.setLocale(locales.get(mNext++ % locales.size()));
+                context.createConfigurationContext(config).getResources().getString(R.string.hello);
+            }
+        });
+        benchmark.measure("componentBuild", new Microbenchmark.Body() {
+            @Override
+            public void run() {
+                DaggerUserComponent.create();
+            }
+        });
+
+        LocaleSwitcher.switchTo(context, locales.get(0));
+        IdleSynchronizer synchronizer = new IdleSynchronizer(instrumentation);
+        new ActivityLauncher(instrumentation, UiDevice.getInstance(instrumentation), synchronizer)
+                .launch(locales.get(0), true);
+        final BitmapPool pool = new BitmapPool(16 * 1024 * 1024);
+        final ScreenCapture capture = new ScreenCapture(instrumentation, pool);
+        benchmark.measure("capture", new Microbenchmark.Body() {
+            @Override
+            public void run() {
+                capture.release(capture.capture());
+            }
+        });
+        final Bitmap bitmap = capture.capture();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(bitmap.getByteCount());
+        benchmark.measure("compressPng", new Microbenchmark.Body() {
+            @Override
+            public void run() {
+                out.reset();
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            }
+        });
+        capture.release(bitmap);
+
+        File file = new File("/sdcard/test/benchmark.json");
+        file.getParentFile().mkdirs();
+        benchmark.writeJson(file);
+    }
+}
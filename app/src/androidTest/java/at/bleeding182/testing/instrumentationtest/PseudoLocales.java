@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pseudo-locales that stress a layout without waiting for real translations.
+ * <p>
+ * Like the pseudo-locales of the platform, {@code en-XA} accents every letter and makes text about
+ * 40% longer, which is about what German or Finnish need. {@code ar-XB} keeps the text but lays it
+ * out right to left. Neither has resources of its own, so they resolve to the default ones and the
+ * text is rewritten after binding with {@link #apply(View)}.
+ */
+public final class PseudoLocales {
+
+    public static final Locale ACCENTED = new Locale("en", "XA");
+    public static final Locale BIDI = new Locale("ar", "XB");
+
+    private static final String PLAIN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String ACCENTS = "\u00e5\u0180\u00e7\u00f0\u00e9\u0192\u011d\u0125\u00ee\u0135\u0137"
+            + "\u013c\u0271\u00f1\u00f6\u00fe\u01eb\u0155\u0161\u0163\u00fb\u1e7d\u0175\u1e8b\u00fd\u017e"
+            + "\u00c5\u0181\u00c7\u00d0\u00c9\u0191\u011c\u0124\u00ce\u0134\u0136\u013b\u1e3e\u00d1\u00d6"
+            + "\u00de\u01ea\u0154\u0160\u0162\u00db\u1e7c\u0174\u1e8a\u00dd\u017d";
+    private static final String PADDING = " one two three four five six seven eight nine ten";
+
+    private PseudoLocales() {
+    }
+
+    public static List<Locale> all() {
+        return Arrays.asList(ACCENTED, BIDI);
+    }
+
+    /**
+     * Rewrites the text of every {@link TextView} below the root if it resolves resources for a
+     * pseudo-locale, does nothing otherwise.
+     */
+    public static void apply(View root) {
+        Locale locale = root.getResources().getConfiguration().locale;
+        if (ACCENTED.equals(locale) || BIDI.equals(locale)) {
+            rewrite(root, BIDI.equals(locale));
+        }
+    }
+
+    private static void rewrite(View view, boolean bidi) {
+        if (view instanceof TextView) {
+            TextView text = (TextView) view;
+            text.setText(bidi ? bidi(text.getText()) : expand(text.getText()));
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                rewrite(group.getChildAt(i), bidi);
+            }
+        }
+    }
+
+    /**
+     * @return the text with accented letters, 40% longer and in brackets to spot truncation
+     */
+    public static String expand(CharSequence text) {
+        if (text.length() == 0) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length() * 2).append('[');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int plain = PLAIN.indexOf(c);
+            builder.append(plain >= 0 ? ACCENTS.charAt(plain) : c);
+        }
+        int padding = Math.max(1, (int) Math.ceil(text.length() * 0.4));
+        for (int i = 0; i < padding; i++) {
+            builder.append(PADDING.charAt(i % PADDING.length()));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * @return the text forced into right to left order
+     */
+    public static String bidi(CharSequence text) {
+        return text.length() == 0 ? "" : "\u202e" + text + "\u202c";
+    }
+}
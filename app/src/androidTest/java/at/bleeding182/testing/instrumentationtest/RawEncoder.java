@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Dumps the raw pixels of a bitmap without any compression, to be converted to PNG on the host
+ * by {@code :tools:convertScreenshots}.
+ * <p>
+ * The file starts with a big endian header of five ints: the magic {@code RAW1}, width, height,
+ * pixel format ({@value #FORMAT_RGBA_8888} for RGBA_8888, {@value #FORMAT_RGB_565} for little
+ * endian RGB_565) and the bytes per row. The rows follow without padding in between.
+ */
+public class RawEncoder implements ImageEncoder {
+
+    static final int MAGIC = 0x52415731;
+    static final int FORMAT_RGBA_8888 = 1;
+    static final int FORMAT_RGB_565 = 2;
+
+    private final ThreadLocal<ByteBuffer> mBuffers = new ThreadLocal<>();
+
+    @Override
+    public void encode(Bitmap bitmap, File file) throws IOException {
+        int format;
+        switch (bitmap.getConfig()) {
+            case ARGB_8888:
+                format = FORMAT_RGBA_8888;
+                break;
+            case RGB_565:
+                format = FORMAT_RGB_565;
+                break;
+            default:
+                throw new IOException("Unsupported bitmap config " + bitmap.getConfig());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(5 * 4).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(bitmap.getWidth()).putInt(bitmap.getHeight())
+                .putInt(format).putInt(bitmap.getRowBytes());
+        header.flip();
+
+        ByteBuffer pixels = pixelBuffer(bitmap.getRowBytes() * bitmap.getHeight());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.flip();
+
+        FileOutputStream ostream = new FileOutputStream(file);
+        try {
+            FileChannel channel = ostream.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (pixels.hasRemaining()) {
+                channel.write(pixels);
+            }
+        } finally {
+            ostream.close();
+        }
+    }
+
+    private ByteBuffer pixelBuffer(int size) {
+        ByteBuffer buffer = mBuffers.get();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size);
+            mBuffers.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    @Override
+    public String getExtension() {
+        return ".raw";
+    }
+}
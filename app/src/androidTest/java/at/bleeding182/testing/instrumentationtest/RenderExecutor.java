@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.Process;
+import android.support.test.InstrumentationRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders detached layouts on a pool of background threads.
+ * <p>
+ * Every worker has its own {@link Looper}, so views that create a handler can be inflated off the
+ * main thread. Workers take jobs from one shared queue, each job inflates the layout against its
+ * own locale-configured context and draws it into a bitmap from the pool. The number of threads is
+ * set with {@code -e renderThreads <n>} and defaults to the number of cores.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class RenderExecutor {
+
+    /**
+     * Takes over rendered bitmaps, e.g. to encode them. Called on the worker thread.
+     */
+    public interface Output {
+        void onRendered(Bitmap bitmap);
+    }
+
+    private final ExecutorService mExecutor;
+    private final int mThreads;
+
+    public RenderExecutor() {
+        this(threadsFromArguments());
+    }
+
+    public RenderExecutor(int threads) {
+        mThreads = threads;
+        mExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public synchronized Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+                        Looper.prepare();
+                        runnable.run();
+                    }
+                }, "LayoutRenderer-" + mCount++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static int threadsFromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String threads = arguments != null ? arguments.getString("renderThreads") : null;
+        return threads != null ? Integer.parseInt(threads) : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getThreads() {
+        return mThreads;
+    }
+
+    /**
+     * Queues a layout to be rendered.
+     *
+     * @param pool   the pool the bitmap is taken from
+     * @param output receives the bitmap on the worker thread
+     * @return the pending job, fails if rendering failed
+     */
+    public Future<?> render(final LayoutRenderer renderer, final Locale locale, final int width, final int height,
+                            final BitmapPool pool, final Output output) {
+        return mExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                Bitmap bitmap = pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+                try {
+                    renderer.render(locale, new Canvas(bitmap), width, height);
+                } catch (RuntimeException e) {
+                    pool.release(bitmap);
+                    throw e;
+                }
+                output.onRendered(bitmap);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs a job on one of the workers, e.g. to inflate and lay out a layout without drawing it.
+     *
+     * @return the pending result
+     */
+    public <T> Future<T> submit(Callable<T> job) {
+        return mExecutor.submit(job);
+    }
+
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+}
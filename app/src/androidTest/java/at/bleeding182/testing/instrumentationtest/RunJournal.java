@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only record of the finished captures, so a run that died part-way only redoes what is
+ * missing.
+ * <p>
+ * Every line holds locale, scenario, device, capture key, path and SHA-1 of one written file and
+ * is synced to disk before the capture counts as done. On the next run a capture is skipped if the
+ * journal has an entry with the same key and the file still has the recorded checksum. A torn last
+ * line is ignored. Turn it off with {@code -e journal off}.
+ * <p>
+ * This covers runs that write to the device, like {@code connectedAndroidTest}. The sharded runner
+ * starts every item with an empty directory and moves the files to the host, so it resumes from
+ * its own journal next to the output tree instead.
+ */
+public class RunJournal {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static class Entry {
+        final String mKey;
+        final String mChecksum;
+
+        Entry(String key, String checksum) {
+            mKey = key;
+            mChecksum = checksum;
+        }
+    }
+
+    private final File mFile;
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    private FileOutputStream mOutput;
+    private int mResumed;
+
+    /**
+     * @return the journal at the given file, or null if it is turned off
+     */
+    public static RunJournal fromArguments(File file) {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        if (arguments != null && "off".equals(arguments.getString("journal"))) {
+            return null;
+        }
+        return new RunJournal(file);
+    }
+
+    public RunJournal(File file) {
+        mFile = file;
+        read();
+    }
+
+    private void read() {
+        if (!mFile.isFile()) {
+            return;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(mFile));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    if (parts.length == 6 && parts[5].length() == 40) {
+                        mEntries.put(parts[4], new Entry(parts[3], parts[5]));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            Log.w("LocalizationTest", "Could not read the run journal, starting over", e);
+            mEntries.clear();
+        }
+        Log.d("LocalizationTest", "Run journal has " + mEntries.size() + " finished captures");
+    }
+
+    /**
+     * @return whether the file was written by an earlier run with the same key and is still intact
+     */
+    public synchronized boolean isDone(File file, String key) {
+        Entry entry = mEntries.get(file.getPath());
+        if (entry == null || !entry.mKey.equals(key) || !file.isFile()) {
+            return false;
+        }
+        try {
+            if (!entry.mChecksum.equals(checksum(file))) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        mResumed++;
+        return true;
+    }
+
+    /**
+     * Appends a written file and syncs the journal to disk.
+     */
+    public synchronized void record(Locale locale, String scenario, String key, File file) throws IOException {
+        String checksum = checksum(file);
+        if (mOutput == null) {
+            mOutput = new FileOutputStream(mFile, true);
+        }
+        String line = locale + "\t" + scenario + "\t" + Build.SERIAL + "\t" + key + "\t" + file.getPath()
+                + "\t" + checksum + "\n";
+        mOutput.write(line.getBytes(UTF_8));
+        mOutput.getFD().sync();
+        mEntries.put(file.getPath(), new Entry(key, checksum));
+    }
+
+    /**
+     * @return the number of captures skipped because an earlier run finished them
+     */
+    public synchronized int getResumed() {
+        return mResumed;
+    }
+
+    public synchronized void close() throws IOException {
+        if (mOutput != null) {
+            mOutput.close();
+            mOutput = null;
+        }
+        Log.i("LocalizationTest", "Run journal: " + mResumed + " captures resumed, " + mEntries.size() + " recorded");
+    }
+
+    private static String checksum(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        InputStream input = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.view.View;
+
+import java.util.Collection;
+
+import static junit.framework.Assert.assertFalse;
+
+/**
+ * Draws views into bitmaps taken from a {@link BitmapPool}.
+ * <p>
+ * Captured bitmaps have to be handed back with {@link #release(Bitmap)} once they are written.
+ * The bitmap config defaults to {@code ARGB_8888} and can be lowered with
+ * {@code -e captureConfig RGB_565}.
+ */
+public class ScreenCapture {
+
+    private final Instrumentation mInstrumentation;
+    private final BitmapPool mPool;
+    private final Bitmap.Config mConfig;
+    private final Canvas mCanvas = new Canvas();
+
+    public ScreenCapture(Instrumentation instrumentation, BitmapPool pool) {
+        this(instrumentation, pool, configFromArguments());
+    }
+
+    public ScreenCapture(Instrumentation instrumentation, BitmapPool pool, Bitmap.Config config) {
+        mInstrumentation = instrumentation;
+        mPool = pool;
+        mConfig = config;
+    }
+
+    private static Bitmap.Config configFromArguments() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String config = arguments != null ? arguments.getString("captureConfig") : null;
+        return config != null ? Bitmap.Config.valueOf(config) : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * Captures the whole window of the resumed activity.
+     */
+    public Bitmap capture() {
+        final View[] root = new View[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Collection<Activity> activities = ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED);
+                if (!activities.isEmpty()) {
+                    root[0] = activities.iterator().next().getWindow().getDecorView();
+                }
+            }
+        });
+        assertFalse("No resumed activity to capture", root[0] == null);
+        return capture(root[0]);
+    }
+
+    /**
+     * Captures a view and its children.
+     */
+    public Bitmap capture(View view) {
+        return capture(view, null);
+    }
+
+    /**
+     * Captures part of a view.
+     *
+     * @param area the area to capture in the coordinates of the view, or null for the whole view
+     */
+    public Bitmap capture(final View view, final Rect area) {
+        final Bitmap[] bitmap = new Bitmap[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Rect bounds = area != null ? area : new Rect(0, 0, view.getWidth(), view.getHeight());
+                bitmap[0] = mPool.acquire(bounds.width(), bounds.height(), mConfig);
+                mCanvas.setBitmap(bitmap[0]);
+                int saveCount = mCanvas.save();
+                mCanvas.translate(-bounds.left, -bounds.top);
+                view.draw(mCanvas);
+                mCanvas.restoreToCount(saveCount);
+                mCanvas.setBitmap(null);
+            }
+        });
+        return bitmap[0];
+    }
+
+    /**
+     * Returns a captured bitmap to the pool.
+     */
+    public void release(Bitmap bitmap) {
+        mPool.release(bitmap);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+
+import java.io.File;
+
+/**
+ * Tells the host about every finished screenshot while the tests are still running.
+ * <p>
+ * Enabled with {@code -e streamScreenshots true}. Each file is reported as an in-progress
+ * instrumentation status with the key {@value #KEY_SCREENSHOT}, which {@code am instrument -r}
+ * prints right away. The host pulls the file and deletes it from the device once it has it, so
+ * host-side processing overlaps with capturing and the device only needs space for a few files.
+ */
+public final class ScreenshotPublisher {
+
+    public static final String KEY_SCREENSHOT = "screenshot";
+
+    /** Status code ddmlib and {@code am instrument} treat as in-progress information. */
+    private static final int STATUS_IN_PROGRESS = 2;
+
+    private ScreenshotPublisher() {
+    }
+
+    public static boolean isEnabled() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        return arguments != null && Boolean.parseBoolean(arguments.getString("streamScreenshots"));
+    }
+
+    /**
+     * Reports a written screenshot. It must not be touched afterwards, the host may delete it any time.
+     */
+    public static void publish(File file) {
+        if (!isEnabled()) {
+            return;
+        }
+        Bundle status = new Bundle();
+        status.putString(KEY_SCREENSHOT, file.getAbsolutePath());
+        InstrumentationRegistry.getInstrumentation().sendStatus(STATUS_IN_PROGRESS, status);
+    }
+}
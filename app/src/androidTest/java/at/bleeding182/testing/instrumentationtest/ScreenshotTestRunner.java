@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.app.Application;
+import android.os.Bundle;
+import android.support.test.runner.AndroidJUnitRunner;
+import android.util.Log;
+
+/**
+ * Runs the instrumentation tests with the test fixtures in place from the start.
+ * <p>
+ * The fixture component is registered before {@link App#onCreate()}, so the app never builds the
+ * real object graph just to have it replaced. Start it with {@code -e componentOverride off} to
+ * measure the app with its real modules. The time {@link App#onCreate()} and the component build
+ * took are added to the instrumentation results as {@code startupMs} and {@code componentBuildMs}.
+ */
+public class ScreenshotTestRunner extends AndroidJUnitRunner {
+
+    private boolean mComponentOverride;
+    private long mStartupTime = -1;
+    private App mApp;
+
+    @Override
+    public void onCreate(Bundle arguments) {
+        mComponentOverride = arguments == null || !"off".equals(arguments.getString("componentOverride"));
+        super.onCreate(arguments);
+    }
+
+    @Override
+    public void callApplicationOnCreate(Application app) {
+        if (mComponentOverride) {
+            App.setComponentFactory(new App.ComponentFactory() {
+                @Override
+                public UserComponent create() {
+                    return DaggerUserComponent.builder().randomModule(new MockModule()).build();
+                }
+            });
+        }
+        // the app starts before the first test, its phases are kept for the first run
+        Tracing.setListener(PhaseTracer.get());
+        long start = System.nanoTime();
+        super.callApplicationOnCreate(app);
+        mStartupTime = System.nanoTime() - start;
+        if (app instanceof App) {
+            mApp = (App) app;
+        }
+    }
+
+    /**
+     * @return whether the app uses the fixture component
+     */
+    public boolean hasComponentOverride() {
+        return mComponentOverride;
+    }
+
+    @Override
+    public void finish(int resultCode, Bundle results) {
+        if (results == null) {
+            results = new Bundle();
+        }
+        long buildTime = mApp != null ? mApp.getComponentBuildTime() : -1;
+        results.putBoolean("componentOverride", mComponentOverride);
+        results.putString("startupMs", String.valueOf(mStartupTime / 1000000d));
+        results.putString("componentBuildMs", buildTime < 0 ? "n/a" : String.valueOf(buildTime / 1000000d));
+        Log.i("LocalizationTest", "App.onCreate took " + mStartupTime / 1000 + "us, component build took "
+                + (buildTime < 0 ? "n/a" : buildTime / 1000 + "us") + ", override " + mComponentOverride);
+        super.finish(resultCode, results);
+    }
+}
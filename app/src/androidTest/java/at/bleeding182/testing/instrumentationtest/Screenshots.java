@@ -25,54 +25,39 @@
 package at.bleeding182.testing.instrumentationtest;
 
 import android.annotation.TargetApi;
+import android.app.Activity;
 import android.app.Instrumentation;
 import android.app.UiAutomation;
 import android.content.Context;
-import android.content.Intent;
-import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
-import android.graphics.Rect;
-import android.graphics.Typeface;
 import android.os.Build;
 import android.os.Environment;
 import android.support.test.InstrumentationRegistry;
-import android.support.test.uiautomator.By;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
 import android.support.test.uiautomator.UiDevice;
-import android.support.test.uiautomator.Until;
-import android.view.View;
+import android.util.Log;
 import android.view.WindowManager;
 
-import com.robotium.solo.Condition;
-import com.robotium.solo.Solo;
-
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
-
-import at.bleeding182.testing.instrumentationtest.modules.RandomModule;
+import java.util.Properties;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.fail;
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -81,184 +66,221 @@ import static org.junit.Assert.assertTrue;
 @RunWith(Parameterized.class)
 public class Screenshots {
 
-    private static final long LAUNCH_TIMEOUT = 5 * 1000;
+    private static final int ENCODER_QUEUE = 2;
+    private static final BitmapPool sBitmapPool = new BitmapPool(32 * 1024 * 1024);
+    private static final EncoderStage sEncoderStage =
+            new EncoderStage(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), ENCODER_QUEUE);
+    private static final CaptureCache sCaptureCache = CaptureCache.fromArguments();
+    private static final CapturePruner sPruner = new CapturePruner(
+            new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "capture-pruner"));
+    private static final RunJournal sJournal = RunJournal.fromArguments(new File("/sdcard/test/journal.txt"));
+
+    /**
+     * The locale the activity on screen was last started or recreated in.
+     */
+    private static Locale sShownLocale;
+
+    @Rule
+    public final MemoryRule mMemory = new MemoryRule(sBitmapPool, ENCODER_QUEUE);
+
     private final Locale mLocale;
+    private final Scenario mScenario;
     private UiDevice mDevice;
-    private Solo mSolo;
+    private ScreenCapture mCapture;
+    private IdleSynchronizer mSynchronizer;
+    private ActivityLauncher mLauncher;
+
+    @Parameterized.Parameters(name = "Locale: {0}, scenario: {1}")
+    public static Collection<Object[]> parameters() {
+        return Scenarios.matrix(locales(),
+                Scenarios.filter(Scenarios.all(), InstrumentationRegistry.getArguments().getString("scenarios")));
+    }
 
-    @Parameterized.Parameters(name = "Locale: {0}")
-    public static Collection<Locale> locales() {
-        return Arrays.asList(new Locale("en"), new Locale("de"), new Locale("fr"));
+    public static List<Locale> locales() {
+        return Locales.filter(Locales.all(), InstrumentationRegistry.getArguments().getString("locales"));
     }
 
-    public Screenshots(Locale locale) throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+    public Screenshots(Locale locale, Scenario scenario) {
         mLocale = locale;
-        Configuration config = new Configuration();
-        Locale.setDefault(mLocale);
-        config.locale = mLocale;
-        Resources resources = InstrumentationRegistry.getTargetContext().getApplicationContext().getResources();
-        resources.updateConfiguration(config, resources.getDisplayMetrics());
-
-        Method method = getClass().getClassLoader()
-                .loadClass("android.app.ApplicationPackageManager")
-                .getDeclaredMethod("configurationChanged");
-        method.setAccessible(true);
-        method.invoke(null);
+        mScenario = scenario;
+        PhaseTracer.get().startRun(mLocale + "/" + mScenario.getName());
+        long start = Tracing.begin("localeSwitch");
+        try {
+            LocaleSwitcher.switchTo(InstrumentationRegistry.getTargetContext(), mLocale);
+        } finally {
+            Tracing.end("localeSwitch", start);
+        }
+    }
 
+    @AfterClass
+    public static void finishWriting() throws IOException {
+        sEncoderStage.await();
+        if (sCaptureCache != null) {
+            sCaptureCache.writeStats(new File("/sdcard/test/capture-cache.txt"));
+        }
+        sPruner.writeStats(new File("/sdcard/test/capture-pruning.txt"));
+        writeStatusBarInfo(new File("/sdcard/test/status-bar.properties"));
+        PhaseTracer.get().writeSummary(new File("/sdcard/test/phases.json"));
+        if (sJournal != null) {
+            sJournal.close();
+        }
+        long total = 0;
+        List<Long> switchTimes = LocaleSwitcher.getSwitchTimes();
+        for (long time : switchTimes) {
+            total += time;
+        }
+        Log.i("LocalizationTest", switchTimes.size() + " locale switches took " + total / 1000 + "us in total");
+    }
 
+    /**
+     * Writes what {@code :tools:normalizeStatusBar} needs to paint a fixed status bar over the screenshots.
+     */
+    private static void writeStatusBarInfo(File file) throws IOException {
+        Resources resources = InstrumentationRegistry.getTargetContext().getResources();
+        int heightId = resources.getIdentifier("status_bar_height", "dimen", "android");
+        Properties info = new Properties();
+        info.setProperty("density", String.valueOf(resources.getDisplayMetrics().density));
+        info.setProperty("height", String.valueOf(heightId != 0 ? resources.getDimensionPixelSize(heightId) : 0));
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            info.store(out, null);
+        } finally {
+            out.close();
+        }
     }
 
     @Before
     public void setupTest() {
         Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
         mDevice = UiDevice.getInstance(instrumentation);
-        mSolo = new Solo(instrumentation);
-    }
-
-    public static class MockModule extends RandomModule {
-
-        int provideRandomInt() {
-            return 42;
-        }
+        mCapture = new ScreenCapture(instrumentation, sBitmapPool);
+        mSynchronizer = new IdleSynchronizer(instrumentation);
+        mLauncher = new ActivityLauncher(instrumentation, mDevice, mSynchronizer);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
     @Test
     public void makeScreenshot() throws IOException {
-        try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        // add test data
-        App app = (App) InstrumentationRegistry.getTargetContext().getApplicationContext();
+        final File file = new File("/sdcard/test/" + Locale.getDefault().getLanguage() + "/" + mScenario.getName());
+        assertEquals("Could not create directory", true, file.getParentFile().mkdirs() || file.getParentFile().exists());
 
-        try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // reuse the stored capture if nothing that feeds it changed
+        final String key = captureKey();
+        final File cached = new File(file.getPath() + sEncoderStage.getExtension());
+        // finished by an earlier run that died part-way
+        if (sJournal != null && sJournal.isDone(cached, key)) {
+            ScreenshotPublisher.publish(cached);
+            return;
         }
-
-        UserComponent component = DaggerUserComponent.builder().randomModule(new MockModule()).build();
-        app.setUserComponent(component);
-
-        try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (sCaptureCache != null && sCaptureCache.restore(key, cached)) {
+            journal(key, cached);
+            ScreenshotPublisher.publish(cached);
+            return;
+        }
+        // an equivalent configuration of this run is captured instead
+        if (!sPruner.claim(key, cached, new EncoderStage.Callback() {
+            @Override
+            public void onWritten(File copy) throws IOException {
+                journal(key, copy);
+            }
+        })) {
+            return;
         }
 
-        launchActivity();
+        // add test data
+        final App app = (App) InstrumentationRegistry.getTargetContext().getApplicationContext();
+        app.setUserComponent(mScenario.createComponent());
+        // the app outlives the test, it must not keep the graph of this scenario
+        mMemory.autoRelease(new Closeable() {
+            @Override
+            public void close() {
+                app.setUserComponent(null);
+            }
+        });
 
-        try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // the activity only has to be recreated for a new locale, other scenarios are bound in place
+        if (!mLocale.equals(sShownLocale) || !rebindActivity()) {
+            mSynchronizer.waitForIdle("locale switch");
+            long start = Tracing.begin("launch");
+            try {
+                mLauncher.launch(mLocale, false);
+            } finally {
+                Tracing.end("launch", start);
+            }
+            sShownLocale = mLocale;
+        } else {
+            mSynchronizer.waitForIdle("scenario " + mScenario);
         }
 
         // take screenshot
-        final File file = new File("/sdcard/test/" + Locale.getDefault().getLanguage() + "/screenshot.png");
-        assertEquals("Could not create directory", true, file.getParentFile().mkdirs() || file.getParentFile().exists());
-
-
-        takeScreenshot("/sdcard/test/" + Locale.getDefault().getLanguage() + "/screenshot.png");
-
-//        FileInputStream inputStream = new FileInputStream(file);
-//        BitmapFactory.Options opt = new BitmapFactory.Options();
-//        opt.inMutable = true;
-//        Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, opt);
-//
-//
-//        inputStream.close();
-//
-//        int statusBarColor = bitmap.getPixel(mDevice.getDisplayWidth() - 2, 2);
-//        int resourceId = app.getResources().getIdentifier("status_bar_height", "dimen", "android");
-//        int statusBarHeight = app.getResources().getDimensionPixelSize(resourceId);
-//
-//        Paint paint = new Paint();
-//        paint.setColor(statusBarColor);
-//
-//        Canvas canvas = new Canvas(bitmap);
-//        canvas.drawRect(0, 0, mDevice.getDisplayWidth(), statusBarHeight, paint);
-//
-//        paint.setAntiAlias(true);
-//        paint.setTypeface(Typeface.create("sans-serif-regular", 0));
-//        paint.setTextAlign(Paint.Align.RIGHT);
-//
-//        paint.setTextSize(14 * app.getResources().getDisplayMetrics().scaledDensity);
-//        paint.setColor(Color.argb((int) (255), 255, 255, 255));
-//
-//        Rect rect = new Rect();
-//        paint.getTextBounds("10:00", 0, 5, rect);
-//
-//        final float dp8 = app.getResources().getDisplayMetrics().density * 8;
-//
-//        canvas.drawText("10:00",
-//                mDevice.getDisplayWidth() - dp8,
-//                (statusBarHeight / 2) - rect.exactCenterY(), paint);
-//
-//        int batteryId = app.getResources().getIdentifier("stat_sys_battery_100", "drawable", "android");
-//        Bitmap battery = BitmapFactory.decodeResource(app.getResources(), batteryId);
-//        paint.setColorFilter(new PorterDuffColorFilter(Color.argb(255, 255, 255, 255), PorterDuff.Mode.SRC_IN));
-//        canvas.drawBitmap(battery, mDevice.getDisplayWidth() - 2 * dp8 - rect.width() - battery.getWidth(),
-//                (statusBarHeight - battery.getHeight()) / 2, paint);
-//
-//        bitmap.compress(Bitmap.CompressFormat.PNG, 100, new FileOutputStream(file));
+        takeScreenshot(file, key);
     }
 
-    public void takeScreenshot(final String filename) {
-        View view = mSolo.getCurrentViews().get(0).getRootView();
-        view.setDrawingCacheEnabled(true);
-        view.buildDrawingCache();
-        Bitmap bitmap = view.getDrawingCache();
-
-        File directory = new File(filename);
-//        directory.mkdirs();
-
-        if (bitmap != null) {
-            try {
-//                File outputFile = new File(directory, filename);
-                FileOutputStream ostream = new FileOutputStream(directory);
-                bitmap.compress(Bitmap.CompressFormat.PNG, 100, ostream);
-                ostream.close();
-            } catch (Exception e) {
-                fail(e.getMessage());
-            }
+    private void journal(String key, File file) throws IOException {
+        if (sJournal != null) {
+            sJournal.record(mLocale, mScenario.getName(), key, file);
         }
     }
 
-    private void launchActivity() {
-        // Start from the home screen
-        mDevice.pressHome();
-
-        // Wait for launcher
-        final String launcherPackage = mDevice.getLauncherPackageName();
-        assertThat(launcherPackage, notNullValue());
-        mDevice.wait(Until.hasObject(By.pkg(launcherPackage).depth(0)), LAUNCH_TIMEOUT);
-
-        // Launch the app
-        Context context = InstrumentationRegistry.getContext();
-        final Intent intent = context.getPackageManager().getLaunchIntentForPackage(BuildConfig.APPLICATION_ID);
+    private boolean rebindActivity() {
+        long start = Tracing.begin("rebind");
+        final boolean[] rebound = new boolean[1];
+        try {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    for (Activity activity : ActivityLifecycleMonitorRegistry.getInstance()
+                            .getActivitiesInStage(Stage.RESUMED)) {
+                        if (activity instanceof MainActivity) {
+                            ((MainActivity) activity).rebind();
+                            rebound[0] = true;
+                        }
+                    }
+                }
+            });
+        } finally {
+            Tracing.end("rebind", start);
+        }
+        return rebound[0];
+    }
 
-        // Clear out any previous instances
-        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        context.startActivity(intent);
+    private String captureKey() {
+        Context context = InstrumentationRegistry.getTargetContext().getApplicationContext();
+        Resources resources = context.getResources();
+        return new CaptureKey()
+                .app(context)
+                .strings(resources)
+                .dimens(resources)
+                .layout(resources, R.layout.activity_main)
+                .device(resources)
+                .locale(resources)
+                .add(mScenario.describe())
+                .add(sEncoderStage.getExtension())
+                .build();
+    }
 
-        // Wait for the app to appear
-        mDevice.wait(Until.hasObject(By.pkg(BuildConfig.APPLICATION_ID).depth(0)), LAUNCH_TIMEOUT);
-        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    /**
+     * Captures the screen and queues it to be written to the file, the extension is added by the encoder.
+     *
+     * @param key the key to store the written file under in the capture cache and to fan it out with
+     */
+    public void takeScreenshot(final File file, final String key) {
+        long start = Tracing.begin("capture");
+        Bitmap bitmap;
         try {
-            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            bitmap = mCapture.capture();
+        } finally {
+            Tracing.end("capture", start);
         }
+        sEncoderStage.submit(bitmap, file, sBitmapPool, new EncoderStage.Callback() {
+            @Override
+            public void onWritten(File written) throws IOException {
+                if (sCaptureCache != null) {
+                    sCaptureCache.store(key, written);
+                }
+                journal(key, written);
+                sPruner.written(key, written);
+            }
+        });
     }
 }
-
@@ -0,0 +1,251 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.support.annotation.StringRes;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.text.Layout;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks the strings on screen against the string resources of a locale in one pass.
+ * <p>
+ * The view hierarchy of the resumed activities is snapshotted once on the main thread and every
+ * visible {@link TextView} is matched against a table of all string resources, so there are no
+ * per-string lookups or timeouts. Reported are expected strings that are not shown, strings that
+ * show the default instead of the localized value and texts that are ellipsized or clipped.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+public class StringVerifier {
+
+    private final Instrumentation mInstrumentation;
+    private final Locale mLocale;
+    private final Resources mLocalized;
+    private final Resources mDefaults;
+    private final Map<String, Integer> mLocalizedIds = new HashMap<>();
+    private final Map<String, Integer> mDefaultIds = new HashMap<>();
+    private final List<Integer> mExpected = new ArrayList<>();
+    private boolean mTranslated;
+
+    /**
+     * @param context a context of the app under test
+     * @param locale  the locale the strings should be in
+     */
+    public StringVerifier(Instrumentation instrumentation, Context context, Locale locale) {
+        mInstrumentation = instrumentation;
+        mLocale = locale;
+        mLocalized = resources(context, locale);
+        mDefaults = resources(context, new Locale(""));
+        for (int id : CaptureKey.stringIds()) {
+            mLocalizedIds.put(mLocalized.getString(id), id);
+            mDefaultIds.put(mDefaults.getString(id), id);
+            mTranslated |= !mLocalized.getString(id).equals(mDefaults.getString(id));
+        }
+    }
+
+    private static Resources resources(Context context, Locale locale) {
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.setLocale(locale);
+        return context.createConfigurationContext(config).getResources();
+    }
+
+    /**
+     * Adds strings that have to be on screen.
+     */
+    public StringVerifier expect(@StringRes int... ids) {
+        for (int id : ids) {
+            mExpected.add(id);
+        }
+        return this;
+    }
+
+    /**
+     * Snapshots the resumed activities and checks their texts. Call it once the app is idle.
+     */
+    public Report verify() {
+        final List<Shown> shown = new ArrayList<>();
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (Activity activity : ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED)) {
+                    collect(activity.getWindow().getDecorView(), shown);
+                }
+            }
+        });
+        return check(shown);
+    }
+
+    /**
+     * Checks the texts of a single view hierarchy, e.g. one rendered off-screen. Has to be called on
+     * the thread that owns the views.
+     */
+    public Report verify(View root) {
+        List<Shown> shown = new ArrayList<>();
+        collect(root, shown);
+        return check(shown);
+    }
+
+    private Report check(List<Shown> shown) {
+        Report report = new Report();
+        Set<String> texts = new HashSet<>();
+        for (Shown text : shown) {
+            texts.add(text.mText);
+            if (text.mTruncated) {
+                report.mTruncated.add(text.mView + " \"" + text.mText + "\"");
+            }
+            Integer localized = mLocalizedIds.get(text.mText);
+            Integer fallback = mDefaultIds.get(text.mText);
+            if (localized == null && fallback != null) {
+                report.mFallbacks.add(name(fallback) + " in " + text.mView + " shows \"" + text.mText
+                        + "\" instead of \"" + mLocalized.getString(fallback) + "\"");
+            }
+        }
+        for (int id : mExpected) {
+            String value = mLocalized.getString(id);
+            if (!texts.contains(value)) {
+                report.mMissing.add(name(id) + " \"" + value + "\"");
+            } else if (mTranslated && value.equals(mDefaults.getString(id))) {
+                // a locale without any translation is the default language itself
+                report.mFallbacks.add(name(id) + " is not translated to " + mLocale);
+            }
+        }
+        return report;
+    }
+
+    private String name(int id) {
+        return mLocalized.getResourceEntryName(id);
+    }
+
+    private static void collect(View view, List<Shown> shown) {
+        if (view.getVisibility() != View.VISIBLE || view.getWidth() == 0 || view.getHeight() == 0) {
+            return;
+        }
+        if (view instanceof TextView) {
+            TextView textView = (TextView) view;
+            CharSequence text = textView.getText();
+            if (text != null && text.length() > 0) {
+                shown.add(new Shown(describe(textView), text.toString(), isTruncated(textView)));
+            }
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collect(group.getChildAt(i), shown);
+            }
+        }
+    }
+
+    private static boolean isTruncated(TextView textView) {
+        Layout layout = textView.getLayout();
+        if (layout == null) {
+            return false;
+        }
+        int width = textView.getWidth() - textView.getCompoundPaddingLeft() - textView.getCompoundPaddingRight();
+        int height = textView.getHeight() - textView.getCompoundPaddingTop() - textView.getCompoundPaddingBottom();
+        if (layout.getHeight() > height) {
+            return true;
+        }
+        for (int line = 0; line < layout.getLineCount(); line++) {
+            if (layout.getEllipsisCount(line) > 0 || layout.getLineWidth(line) > width) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(View view) {
+        if (view.getId() != View.NO_ID) {
+            try {
+                return view.getResources().getResourceEntryName(view.getId());
+            } catch (Resources.NotFoundException ignored) {
+                // generated id
+            }
+        }
+        return view.getClass().getSimpleName();
+    }
+
+    private static class Shown {
+        final String mView;
+        final String mText;
+        final boolean mTruncated;
+
+        Shown(String view, String text, boolean truncated) {
+            mView = view;
+            mText = text;
+            mTruncated = truncated;
+        }
+    }
+
+    /**
+     * The problems found by one verification.
+     */
+    public static class Report {
+        private final List<String> mMissing = new ArrayList<>();
+        private final List<String> mFallbacks = new ArrayList<>();
+        private final List<String> mTruncated = new ArrayList<>();
+
+        public List<String> getMissing() {
+            return mMissing;
+        }
+
+        public List<String> getFallbacks() {
+            return mFallbacks;
+        }
+
+        public List<String> getTruncated() {
+            return mTruncated;
+        }
+
+        public boolean isClean() {
+            return mMissing.isEmpty() && mFallbacks.isEmpty() && mTruncated.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "missing " + mMissing + ", default instead of localized " + mFallbacks
+                    + ", truncated " + mTruncated;
+        }
+    }
+}
@@ -32,22 +32,62 @@ import android.util.Log;
  */
 public class App extends Application {
 
+    /**
+     * Builds the {@link UserComponent}, e.g. with test fixtures instead of the real modules.
+     */
+    public interface ComponentFactory {
+        UserComponent create();
+    }
+
+    private static ComponentFactory sComponentFactory;
+
     private UserComponent mUserComponent;
+    private long mComponentBuildTime = -1;
+
+    /**
+     * Replaces the default component. Has to be called before the component is first used, e.g.
+     * by an instrumentation before {@link #onCreate()}.
+     */
+    public static void setComponentFactory(ComponentFactory factory) {
+        sComponentFactory = factory;
+    }
 
     @Override
     public void onCreate() {
-        Log.d("LocalizationTest", "onCreate");
-        super.onCreate();
-
-        mUserComponent = DaggerUserComponent.create();
-        mUserComponent.inject(this);
+        long start = Tracing.begin("App.onCreate");
+        try {
+            Log.d("LocalizationTest", "onCreate");
+            super.onCreate();
+        } finally {
+            Tracing.end("App.onCreate", start);
+        }
     }
 
-    public UserComponent getUserComponent() {
+    /**
+     * Returns the component, which is built on first use.
+     */
+    public synchronized UserComponent getUserComponent() {
+        if (mUserComponent == null) {
+            long start = Tracing.begin("App.buildComponent");
+            try {
+                mUserComponent = sComponentFactory != null ? sComponentFactory.create() : DaggerUserComponent.create();
+                mUserComponent.inject(this);
+            } finally {
+                mComponentBuildTime = Tracing.end("App.buildComponent", start);
+            }
+            Log.d("LocalizationTest", "Built component in " + mComponentBuildTime / 1000 + "us");
+        }
         return mUserComponent;
     }
 
-    public void setUserComponent(UserComponent userComponent) {
+    public synchronized void setUserComponent(UserComponent userComponent) {
         mUserComponent = userComponent;
     }
+
+    /**
+     * @return the time building the component took in nanoseconds, or -1 if it was not built yet
+     */
+    public synchronized long getComponentBuildTime() {
+        return mComponentBuildTime;
+    }
 }
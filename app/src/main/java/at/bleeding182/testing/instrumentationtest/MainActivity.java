@@ -26,8 +26,11 @@ package at.bleeding182.testing.instrumentationtest;
 
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
+import android.view.View;
 import android.widget.TextView;
 
+import java.text.NumberFormat;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -40,10 +43,46 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        long start = Tracing.begin("MainActivity.inflate");
+        try {
+            setContentView(R.layout.activity_main);
+        } finally {
+            Tracing.end("MainActivity.inflate", start);
+        }
+
+        ((App) getApplicationContext()).getUserComponent().inject(this);
 
+        start = Tracing.begin("MainActivity.bind");
+        try {
+            bind(findViewById(android.R.id.content), number);
+        } finally {
+            Tracing.end("MainActivity.bind", start);
+        }
+    }
+
+    /**
+     * Injects the current component again and updates the views in place, e.g. after a test
+     * replaced the component of the app.
+     */
+    void rebind() {
         ((App) getApplicationContext()).getUserComponent().inject(this);
+        long start = Tracing.begin("MainActivity.bind");
+        try {
+            bind(findViewById(android.R.id.content), number);
+        } finally {
+            Tracing.end("MainActivity.bind", start);
+        }
+    }
 
-        ((TextView) findViewById(android.R.id.text2)).setText(R.string.hello);
+    /**
+     * Binds the data to an inflated {@code activity_main} layout.
+     *
+     * @param view   the inflated layout or one of its parents
+     * @param number the number to show
+     */
+    static void bind(View view, int number) {
+        ((TextView) view.findViewById(android.R.id.text2)).setText(R.string.hello);
+        ((TextView) view.findViewById(android.R.id.text1)).setText(
+                NumberFormat.getIntegerInstance(view.getResources().getConfiguration().locale).format(number));
     }
 }
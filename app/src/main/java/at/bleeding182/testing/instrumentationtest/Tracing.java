@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Marks phases of the app as systrace sections and reports how long they took, e.g. to the tests
+ * that time a screenshot run.
+ * <p>
+ * The sections only show up in systrace from API 18 on, durations are reported on every version.
+ */
+public final class Tracing {
+
+    /**
+     * Gets notified about every finished phase, on the thread that ran it.
+     */
+    public interface Listener {
+        void onPhase(String name, long durationNanos);
+    }
+
+    private static volatile Listener sListener;
+
+    private Tracing() {
+    }
+
+    public static void setListener(Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Starts a phase, which has to be ended on the same thread.
+     *
+     * @return the start time to pass to {@link #end(String, long)}
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static long begin(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends the phase started last on this thread.
+     *
+     * @return the duration of the phase in nanoseconds
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static long end(String name, long start) {
+        long duration = System.nanoTime() - start;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        Listener listener = sListener;
+        if (listener != null) {
+            listener.onPhase(name, duration);
+        }
+        return duration;
+    }
+}
@@ -39,7 +39,7 @@ public class RandomModule {
 
     @Named("random")
     @Provides
-    int provideRandomInt() {
+    protected int provideRandomInt() {
         return new Random().nextInt();
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The locales screenshots are taken in, shared by the device and the JVM tests.
+ */
+public final class Locales {
+
+    private Locales() {
+    }
+
+    /**
+     * @return every locale the app has resources for, see {@link ResourceIndex}
+     */
+    public static List<Locale> all() {
+        return ResourceIndex.get().getLocales();
+    }
+
+    /**
+     * Keeps the locales whose language is in the comma separated list, e.g. a shard's
+     * {@code -e locales de,fr}.
+     *
+     * @param languages the languages to keep, or null to keep all
+     */
+    public static List<Locale> filter(List<Locale> locales, String languages) {
+        if (languages == null) {
+            return locales;
+        }
+        List<String> keep = Arrays.asList(languages.split(","));
+        List<Locale> result = new ArrayList<>();
+        for (Locale locale : locales) {
+            if (keep.contains(locale.getLanguage())) {
+                result.add(locale);
+            }
+        }
+        return result;
+    }
+}
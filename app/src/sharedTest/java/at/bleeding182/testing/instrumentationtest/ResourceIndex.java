@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The values directories of the app as indexed by the {@code resourceIndex} task at build time.
+ * <p>
+ * The index is a java resource of the test source sets, so device and JVM tests read the same
+ * locales and qualifiers without maintaining their own lists.
+ */
+public final class ResourceIndex {
+
+    private static final Pattern WIDTH = Pattern.compile("(?:^|-)w(\\d+)dp(?:-|$)");
+
+    private static ResourceIndex sIndex;
+
+    /**
+     * One values directory.
+     */
+    public static class Entry {
+        private final String mDirectory;
+        private final Locale mLocale;
+        private final String mQualifiers;
+        private final Set<String> mStrings;
+        private final Set<String> mDimens;
+
+        Entry(String directory, Locale locale, String qualifiers, Set<String> strings, Set<String> dimens) {
+            mDirectory = directory;
+            mLocale = locale;
+            mQualifiers = qualifiers;
+            mStrings = strings;
+            mDimens = dimens;
+        }
+
+        public String getDirectory() {
+            return mDirectory;
+        }
+
+        /**
+         * @return the locale of the directory, or null if it applies to all locales
+         */
+        public Locale getLocale() {
+            return mLocale;
+        }
+
+        /**
+         * @return the qualifiers other than the locale, e.g. {@code w820dp}, or an empty string
+         */
+        public String getQualifiers() {
+            return mQualifiers;
+        }
+
+        public Set<String> getStrings() {
+            return mStrings;
+        }
+
+        public Set<String> getDimens() {
+            return mDimens;
+        }
+    }
+
+    private final List<Entry> mEntries;
+
+    private ResourceIndex(List<Entry> entries) {
+        mEntries = entries;
+    }
+
+    /**
+     * @return the index of the app under test, loaded once
+     */
+    public static synchronized ResourceIndex get() {
+        if (sIndex == null) {
+            InputStream stream = ResourceIndex.class.getClassLoader().getResourceAsStream("resource-index.txt");
+            if (stream == null) {
+                throw new IllegalStateException("resource-index.txt is not on the classpath, run the resourceIndex task");
+            }
+            try {
+                sIndex = read(stream);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the resource index", e);
+            }
+        }
+        return sIndex;
+    }
+
+    static ResourceIndex read(InputStream stream) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                entries.add(new Entry(columns[0], locale(columns[1]), columns[2], keys(columns[3]), keys(columns[4])));
+            }
+        } finally {
+            reader.close();
+        }
+        return new ResourceIndex(Collections.unmodifiableList(entries));
+    }
+
+    private static Locale locale(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        String[] parts = value.split("_");
+        return parts.length > 1 ? new Locale(parts[0], parts[1]) : new Locale(parts[0]);
+    }
+
+    private static Set<String> keys(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(value.split(","))));
+    }
+
+    public List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * @return every locale with resources, starting with the one of the default resources
+     */
+    public List<Locale> getLocales() {
+        Set<Locale> locales = new LinkedHashSet<>();
+        for (Entry entry : mEntries) {
+            if ("values".equals(entry.getDirectory()) && entry.getLocale() != null) {
+                locales.add(entry.getLocale());
+            }
+        }
+        for (Entry entry : mEntries) {
+            if (entry.getLocale() != null) {
+                locales.add(entry.getLocale());
+            }
+        }
+        return new ArrayList<>(locales);
+    }
+
+    /**
+     * @return the widths of all {@code w<N>dp} qualifiers in dp, ascending
+     */
+    public SortedSet<Integer> getWidthsDp() {
+        SortedSet<Integer> widths = new TreeSet<>();
+        for (Entry entry : mEntries) {
+            Matcher matcher = WIDTH.matcher(entry.getQualifiers());
+            if (matcher.find()) {
+                widths.add(Integer.valueOf(matcher.group(1)));
+            }
+        }
+        return widths;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import at.bleeding182.testing.instrumentationtest.modules.RandomModule;
+
+/**
+ * A named data state of the app, made up of the fixture modules the {@link UserComponent} is built with.
+ * <p>
+ * Modules that are not set keep their production implementation.
+ */
+public class Scenario {
+
+    private final String mName;
+    private RandomModule mRandomModule;
+
+    public Scenario(String name) {
+        mName = name;
+    }
+
+    public Scenario randomModule(RandomModule randomModule) {
+        mRandomModule = randomModule;
+        return this;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return a new component with the fixtures of this scenario
+     */
+    public UserComponent createComponent() {
+        DaggerUserComponent.Builder builder = DaggerUserComponent.builder();
+        if (mRandomModule != null) {
+            builder.randomModule(mRandomModule);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Describes the fixtures, e.g. to key cached captures of this scenario.
+     */
+    public String describe() {
+        return mName + "[" + mRandomModule + "]";
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
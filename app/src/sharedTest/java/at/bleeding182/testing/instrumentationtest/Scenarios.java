@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The data states screenshots are taken in, shared by the device and the JVM tests.
+ */
+public final class Scenarios {
+
+    /**
+     * The default state, its screenshots keep the {@code screenshot} file name.
+     */
+    public static final Scenario DEFAULT = new Scenario("screenshot").randomModule(new MockModule());
+
+    private Scenarios() {
+    }
+
+    public static List<Scenario> all() {
+        return Arrays.asList(
+                DEFAULT,
+                new Scenario("zero").randomModule(new MockModule(0)),
+                new Scenario("negative").randomModule(new MockModule(-1)),
+                new Scenario("long").randomModule(new MockModule(Integer.MIN_VALUE)));
+    }
+
+    /**
+     * Keeps the scenarios whose name is in the comma separated list, e.g. {@code -e scenarios screenshot,long}.
+     *
+     * @param names the names to keep, or null to keep all
+     */
+    public static List<Scenario> filter(List<Scenario> scenarios, String names) {
+        if (names == null) {
+            return scenarios;
+        }
+        List<String> keep = Arrays.asList(names.split(","));
+        List<Scenario> result = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            if (keep.contains(scenario.getName())) {
+                result.add(scenario);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expands the locales against the scenarios, grouped by locale so the locale only has to be
+     * switched once per group.
+     *
+     * @return {@code {locale, scenario}} pairs
+     */
+    public static List<Object[]> matrix(List<Locale> locales, List<Scenario> scenarios) {
+        List<Object[]> matrix = new ArrayList<>(locales.size() * scenarios.size());
+        for (Locale locale : locales) {
+            for (Scenario scenario : scenarios) {
+                matrix.add(new Object[]{locale, scenario});
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.util.DisplayMetrics;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JVM version of {@link Screenshots} that runs without an emulator.
+ * <p>
+ * Writes the same {@code test/<lang>/<scenario>.png} tree to
+ * {@code build/outputs/screenshots-jvm}, or to the directory set as {@code -Dscreenshots.dir}.
+ * Needs Robolectric 3.1 or later, where the parameterized runner finds the Gradle build output
+ * through {@code constants} like {@code RobolectricGradleTestRunner} does.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class JvmScreenshots {
+
+    private final Locale mLocale;
+    private final Scenario mScenario;
+    private Locale mDefaultLocale;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "Locale: {0}, scenario: {1}")
+    public static Collection<Object[]> parameters() {
+        return Scenarios.matrix(Locales.all(), Scenarios.all());
+    }
+
+    public JvmScreenshots(Locale locale, Scenario scenario) {
+        mLocale = locale;
+        mScenario = scenario;
+    }
+
+    @Before
+    public void setupTest() {
+        mDefaultLocale = Locale.getDefault();
+        Locale.setDefault(mLocale);
+        RuntimeEnvironment.setQualifiers(mLocale.getLanguage());
+
+        // add test data
+        App app = (App) RuntimeEnvironment.application;
+        app.setUserComponent(mScenario.createComponent());
+    }
+
+    @After
+    public void restoreLocale() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void makeScreenshot() throws IOException {
+        MainActivity activity = Robolectric.setupActivity(MainActivity.class);
+
+        DisplayMetrics metrics = activity.getResources().getDisplayMetrics();
+        View root = activity.getWindow().getDecorView();
+        root.measure(View.MeasureSpec.makeMeasureSpec(metrics.widthPixels, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(metrics.heightPixels, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, metrics.widthPixels, metrics.heightPixels);
+
+        File file = new File(System.getProperty("screenshots.dir", "build/outputs/screenshots-jvm"),
+                "test/" + mLocale.getLanguage() + "/" + mScenario.getName() + ".png");
+        assertTrue("Could not create directory", file.getParentFile().mkdirs() || file.getParentFile().exists());
+        ImageIO.write(new WireframeRenderer().render(root), "png", file);
+    }
+}
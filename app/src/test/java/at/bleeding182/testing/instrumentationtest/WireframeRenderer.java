@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.instrumentationtest;
+
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a laid out view hierarchy with Java2D.
+ * <p>
+ * Robolectric does not rasterize {@link android.graphics.Canvas} calls, so this draws what the JVM
+ * knows about the hierarchy instead: view bounds, solid backgrounds and the text of every
+ * {@link TextView} at its laid out position. Text metrics are Robolectric's, so glyph placement is
+ * approximate, but missing, wrong or unlocalized strings show up just like on a device.
+ */
+class WireframeRenderer {
+
+    private static final Color BOUNDS = new Color(0, 0, 0, 32);
+
+    BufferedImage render(View root) {
+        BufferedImage image = new BufferedImage(root.getWidth(), root.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        draw(graphics, root, 0, 0);
+        graphics.dispose();
+        return image;
+    }
+
+    private void draw(Graphics2D graphics, View view, int parentLeft, int parentTop) {
+        if (view.getVisibility() != View.VISIBLE) {
+            return;
+        }
+        int left = parentLeft + view.getLeft();
+        int top = parentTop + view.getTop();
+
+        Drawable background = view.getBackground();
+        if (background instanceof ColorDrawable) {
+            graphics.setColor(new Color(((ColorDrawable) background).getColor(), true));
+            graphics.fillRect(left, top, view.getWidth(), view.getHeight());
+        }
+        graphics.setColor(BOUNDS);
+        graphics.drawRect(left, top, view.getWidth() - 1, view.getHeight() - 1);
+
+        if (view instanceof TextView) {
+            TextView textView = (TextView) view;
+            CharSequence text = textView.getText();
+            if (text != null && text.length() > 0) {
+                graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, Math.round(textView.getTextSize())));
+                graphics.setColor(new Color(textView.getCurrentTextColor(), true));
+                int baseline = textView.getBaseline() > 0
+                        ? textView.getBaseline() : textView.getPaddingTop() + graphics.getFontMetrics().getAscent();
+                graphics.drawString(text.toString(), left + textView.getPaddingLeft(), top + baseline);
+            }
+        }
+
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                draw(graphics, group.getChildAt(i), left - view.getScrollX(), top - view.getScrollY());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command line entry point comparing two benchmark result files.
+ * <p>
+ * {@code BenchmarkCompare <baseline.json> <current.json>... [--threshold <percent>]}
+ * <p>
+ * Reads the JSON written by JMH, and the same format written by the device benchmark, prints the
+ * change of every benchmark found in both and exits with 1 if any of them got slower by more than
+ * the threshold, 10% by default, on top of the error of both measurements. A missing baseline is
+ * not an error, so the first run only records its results.
+ */
+public final class BenchmarkCompare {
+
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkCompare <baseline.json> <current.json>... [--threshold <percent>]");
+            System.exit(2);
+        }
+        double threshold = 10;
+        Map<String, double[]> current = new TreeMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if ("--threshold".equals(args[i])) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                current.putAll(read(Paths.get(args[i])));
+            }
+        }
+        Path baselineFile = Paths.get(args[0]);
+        if (args[0].isEmpty() || !Files.exists(baselineFile)) {
+            System.out.println("No baseline to compare " + current.size() + " benchmarks with");
+            return;
+        }
+        Map<String, double[]> baseline = read(baselineFile);
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format("%-60s %12.3f (new)", entry.getKey(), entry.getValue()[0]));
+                continue;
+            }
+            double[] after = entry.getValue();
+            double change = (after[0] - before[0]) / before[0] * 100;
+            boolean regression = after[0] - after[1] > (before[0] + before[1]) * (1 + threshold / 100);
+            if (regression) {
+                regressions++;
+            }
+            System.out.println(String.format("%-60s %12.3f -> %12.3f %+7.1f%%%s", entry.getKey(), before[0],
+                    after[0], change, regression ? "  REGRESSION" : ""));
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return the score and score error of every benchmark in the file
+     */
+    static Map<String, double[]> read(Path file) throws IOException {
+        Map<String, double[]> scores = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray()) {
+                JsonObject result = element.getAsJsonObject();
+                JsonObject metric = result.getAsJsonObject("primaryMetric");
+                JsonElement error = metric.get("scoreError");
+                // JMH writes "NaN" as the error of a single measurement
+                double scoreError = error != null && error.isJsonPrimitive() && error.getAsJsonPrimitive().isNumber()
+                        ? error.getAsDouble() : 0;
+                scores.put(result.get("benchmark").getAsString() + " [" + metric.get("scoreUnit").getAsString() + "]",
+                        new double[]{metric.get("score").getAsDouble(), scoreError});
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import at.bleeding182.testing.tools.image.PngWriter;
+
+/**
+ * Decoding and encoding one screenshot, as done by every host tool that rewrites screenshots.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Benchmark
+    public BufferedImage decode(Corpus corpus) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(corpus.getPng()));
+    }
+
+    @Benchmark
+    public int encodeImageIo(Corpus corpus) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(corpus.getPng().length);
+        ImageIO.write(corpus.getScreenshot(), "png", out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int encodePngWriter(Corpus corpus) throws IOException {
+        int[] pixels = corpus.copyPixels();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(corpus.getPng().length);
+        PngWriter writer = new PngWriter(out, Corpus.WIDTH, Corpus.HEIGHT);
+        for (int y = 0; y < Corpus.HEIGHT; y++) {
+            writer.writeRow(pixels, y * Corpus.WIDTH);
+        }
+        writer.close();
+        return out.size();
+    }
+}
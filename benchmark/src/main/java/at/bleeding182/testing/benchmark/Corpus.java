@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+
+/**
+ * A fixed pair of xxhdpi screenshots the benchmarks work on.
+ * <p>
+ * The screenshots are drawn from a fixed seed instead of being read from disk, so every commit is
+ * measured against the same pixels. The changed screenshot differs in one line of text, like a
+ * translation that got updated.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+    public static final int WIDTH = 1080;
+    public static final int HEIGHT = 1920;
+    public static final float DENSITY = 3;
+    public static final int STATUS_BAR_HEIGHT = 72;
+
+    private static final String[] WORDS = {"Hallo", "Welt", "Bonjour", "le", "monde", "Hola", "mundo",
+            "Einstellungen", "Param\u00e8tres", "Ajustes", "42", "1.234.567"};
+
+    private BufferedImage mScreenshot;
+    private BufferedImage mChanged;
+    private byte[] mPng;
+
+    @Setup
+    public void setUp() throws IOException {
+        ImageIO.setUseCache(false);
+        mScreenshot = draw(-1);
+        mChanged = draw(7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(mScreenshot, "png", out);
+        mPng = out.toByteArray();
+    }
+
+    private static BufferedImage draw(int changedLine) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(new Color(0xfafafa));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(new Color(0x303f9f));
+        g.fillRect(0, 0, WIDTH, STATUS_BAR_HEIGHT);
+        g.setColor(new Color(0x3f51b5));
+        g.fillRect(0, STATUS_BAR_HEIGHT, WIDTH, 168);
+        g.setColor(Color.WHITE);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 60));
+        g.drawString("Instrumentation Test", 48, STATUS_BAR_HEIGHT + 105);
+
+        Random random = new Random(182);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 42));
+        for (int line = 0; line < 24; line++) {
+            int y = 330 + line * 64;
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 4 + random.nextInt(4); word++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            if (line == changedLine) {
+                text.append("ge\u00e4ndert");
+            }
+            g.setColor(line % 6 == 0 ? new Color(0xff4081) : new Color(0x212121));
+            g.drawString(text.toString(), 48, y);
+        }
+        g.dispose();
+        return image;
+    }
+
+    public BufferedImage getScreenshot() {
+        return mScreenshot;
+    }
+
+    public BufferedImage getChanged() {
+        return mChanged;
+    }
+
+    /**
+     * @return the screenshot encoded as PNG
+     */
+    public byte[] getPng() {
+        return mPng;
+    }
+
+    /**
+     * @return a copy of the ARGB pixels of the screenshot
+     */
+    public int[] copyPixels() {
+        return ImageFiles.pixels(mScreenshot);
+    }
+}
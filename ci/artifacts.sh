@@ -0,0 +1,41 @@
+#!/bin/bash
+#
+# Keeps a directory across CircleCI builds. Caches are only saved after the dependencies phase, so
+# anything the test phase writes is published as an artifact instead and fetched again from the
+# last successful build of the branch, or of master if the branch has none yet.
+#
+#   ci/artifacts.sh save <name> <dir>     packs <dir> into $CIRCLE_ARTIFACTS/<name>.tar.gz
+#   ci/artifacts.sh fetch <name> <dir>    unpacks <name>.tar.gz of the last green build into <dir>
+#
+# Private projects need an API token in CIRCLE_TOKEN to fetch. A missing artifact is not an error,
+# the directory just stays empty.
+
+name=$2
+dir=$3
+if [ -z "$name" ] || [ -z "$dir" ]; then
+    echo "Usage: $0 save|fetch <name> <dir>"
+    exit 2
+fi
+mkdir -p "$dir"
+
+case "$1" in
+    save)
+        tar -czf "$CIRCLE_ARTIFACTS/$name.tar.gz" -C "$dir" .
+        ;;
+    fetch)
+        api="https://circleci.com/api/v1.1/project/github/$CIRCLE_PROJECT_USERNAME/$CIRCLE_PROJECT_REPONAME"
+        for branch in "$CIRCLE_BRANCH" master; do
+            url=$(curl -sf "$api/latest/artifacts?branch=$branch&filter=successful&circle-token=$CIRCLE_TOKEN" \
+                | grep -o "\"url\" *: *\"[^\"]*/$name\.tar\.gz\"" | head -n 1 | sed 's/.*"\(http[^"]*\)"$/\1/')
+            if [ -n "$url" ] && curl -sfL "$url?circle-token=$CIRCLE_TOKEN" | tar -xzf - -C "$dir"; then
+                echo "Fetched $name from the last successful build of $branch"
+                exit 0
+            fi
+        done
+        echo "No $name from an earlier build"
+        ;;
+    *)
+        echo "Usage: $0 save|fetch <name> <dir>"
+        exit 2
+        ;;
+esac
@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import javax.imageio.ImageIO;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+
+/**
+ * Compares every screenshot of a pulled tree with the screenshot at the same path in a baseline
+ * tree and writes a highlighted diff image for each one that changed.
+ */
+public class DiffEngine {
+
+    private final ForkJoinPool mPool;
+    private final ImageComparator mComparator;
+
+    public DiffEngine(ForkJoinPool pool, ImageComparator comparator) {
+        mPool = pool;
+        mComparator = comparator;
+    }
+
+    /**
+     * @param output directory for the diff images
+     */
+    public DiffReport run(final Path baseline, final Path current, final Path output) throws IOException {
+        long start = System.nanoTime();
+        TreeSet<String> paths = new TreeSet<>();
+        paths.addAll(list(baseline));
+        paths.addAll(list(current));
+
+        final List<CompareTask> tasks = new ArrayList<>();
+        for (String path : paths) {
+            tasks.add(new CompareTask(baseline, current, output, path));
+        }
+        mPool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+
+        List<DiffReport.Entry> entries = new ArrayList<>(tasks.size());
+        for (CompareTask task : tasks) {
+            entries.add(task.getRawResult());
+        }
+        return new DiffReport(entries, (System.nanoTime() - start) / 1000000);
+    }
+
+    private static List<String> list(final Path root) throws IOException {
+        final List<String> paths = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return paths;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (ImageFiles.isImage(file)) {
+                    paths.add(root.relativize(file).toString().replace('\\', '/'));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return paths;
+    }
+
+    private class CompareTask extends RecursiveTask<DiffReport.Entry> {
+
+        private final Path mBaseline;
+        private final Path mCurrent;
+        private final Path mOutput;
+        private final String mPath;
+
+        CompareTask(Path baseline, Path current, Path output, String path) {
+            mBaseline = baseline;
+            mCurrent = current;
+            mOutput = output;
+            mPath = path;
+        }
+
+        @Override
+        protected DiffReport.Entry compute() {
+            Path baselineFile = mBaseline.resolve(mPath);
+            Path currentFile = mCurrent.resolve(mPath);
+            if (!Files.exists(baselineFile)) {
+                return new DiffReport.Entry(mPath, DiffReport.Status.ADDED, 0, 0, null, null);
+            }
+            if (!Files.exists(currentFile)) {
+                return new DiffReport.Entry(mPath, DiffReport.Status.REMOVED, 0, 0, null, null);
+            }
+            try {
+                BufferedImage current = ImageFiles.read(currentFile);
+                ImageDiff diff = mComparator.compare(ImageFiles.read(baselineFile), current);
+                if (diff == null) {
+                    return new DiffReport.Entry(mPath, DiffReport.Status.SIZE_CHANGED, 0, 0, null, null);
+                }
+                if (diff.isIdentical()) {
+                    return new DiffReport.Entry(mPath, DiffReport.Status.IDENTICAL, 0, 0, null, null);
+                }
+                String diffImage = mPath.substring(0, mPath.lastIndexOf('.')) + "-diff.png";
+                Path diffFile = mOutput.resolve(diffImage);
+                Files.createDirectories(diffFile.getParent());
+                ImageIO.write(diff.highlight(current), "png", diffFile.toFile());
+                return new DiffReport.Entry(mPath, DiffReport.Status.CHANGED, diff.getDifferentPixels(),
+                        diff.getChangedTiles(), diffImage, null);
+            } catch (IOException | RuntimeException e) {
+                return new DiffReport.Entry(mPath, DiffReport.Status.FAILED, 0, 0, null, String.valueOf(e));
+            }
+        }
+    }
+}
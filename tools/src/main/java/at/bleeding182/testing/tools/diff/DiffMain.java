@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line entry point of the screenshot diff.
+ * <p>
+ * {@code DiffMain <baseline dir> <screenshots dir> <output dir> [--tile <px>] [--tolerance <0-255>]
+ * [--no-anti-aliasing] [--mask-top <px>] [--mask x,y,width,height]...}
+ * <p>
+ * Writes {@code diff-report.json} and the diff images to the output directory and exits with 1 if
+ * any screenshot changed.
+ */
+public final class DiffMain {
+
+    private DiffMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: DiffMain <baseline dir> <screenshots dir> <output dir> [--tile <px>] "
+                    + "[--tolerance <0-255>] [--no-anti-aliasing] [--mask-top <px>] [--mask x,y,width,height]");
+            System.exit(2);
+        }
+        int tileSize = ImageComparator.DEFAULT_TILE_SIZE;
+        int tolerance = ImageComparator.DEFAULT_TOLERANCE;
+        boolean antiAliasing = true;
+        Mask mask = new Mask();
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tile":
+                    tileSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-anti-aliasing":
+                    antiAliasing = false;
+                    break;
+                case "--mask-top":
+                    mask.top(Integer.parseInt(args[++i]));
+                    break;
+                case "--mask":
+                    mask.add(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path output = Paths.get(args[2]);
+        Files.createDirectories(output);
+        ForkJoinPool pool = new ForkJoinPool();
+        DiffReport report = new DiffEngine(pool, new ImageComparator(pool, tileSize, tolerance, antiAliasing, mask))
+                .run(Paths.get(args[0]), Paths.get(args[1]), output);
+        pool.shutdown();
+        report.writeJson(output.resolve("diff-report.json"));
+
+        for (DiffReport.Status status : DiffReport.Status.values()) {
+            System.out.println(status.name().toLowerCase() + ": " + report.count(status));
+        }
+        System.exit(report.hasChanges() ? 1 : 0);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The outcome of comparing a whole screenshot tree against its baseline.
+ */
+public final class DiffReport {
+
+    public enum Status {
+        IDENTICAL, CHANGED, SIZE_CHANGED, ADDED, REMOVED, FAILED
+    }
+
+    public static final class Entry {
+        final String mPath;
+        final Status mStatus;
+        final int mDifferentPixels;
+        final int mChangedTiles;
+        final String mDiffImage;
+        final String mError;
+
+        Entry(String path, Status status, int differentPixels, int changedTiles, String diffImage, String error) {
+            mPath = path;
+            mStatus = status;
+            mDifferentPixels = differentPixels;
+            mChangedTiles = changedTiles;
+            mDiffImage = diffImage;
+            mError = error;
+        }
+
+        public String getPath() {
+            return mPath;
+        }
+
+        public Status getStatus() {
+            return mStatus;
+        }
+
+        public int getDifferentPixels() {
+            return mDifferentPixels;
+        }
+    }
+
+    private final List<Entry> mEntries;
+    private final long mDuration;
+
+    DiffReport(List<Entry> entries, long duration) {
+        mEntries = new ArrayList<>(entries);
+        Collections.sort(mEntries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return lhs.mPath.compareTo(rhs.mPath);
+            }
+        });
+        mDuration = duration;
+    }
+
+    public List<Entry> getEntries() {
+        return mEntries;
+    }
+
+    public int count(Status status) {
+        int count = 0;
+        for (Entry entry : mEntries) {
+            if (entry.mStatus == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return whether any screenshot differs from its baseline
+     */
+    public boolean hasChanges() {
+        return count(Status.IDENTICAL) != mEntries.size();
+    }
+
+    public void writeJson(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"durationMs\": " + mDuration + ",\n  \"summary\": {");
+            Status[] statuses = Status.values();
+            for (int i = 0; i < statuses.length; i++) {
+                writer.write((i > 0 ? ", " : "") + quote(statuses[i].name().toLowerCase()) + ": " + count(statuses[i]));
+            }
+            writer.write("},\n  \"images\": [");
+            for (int i = 0; i < mEntries.size(); i++) {
+                Entry entry = mEntries.get(i);
+                writer.write((i > 0 ? "," : "") + "\n    {\"path\": " + quote(entry.mPath)
+                        + ", \"status\": " + quote(entry.mStatus.name().toLowerCase())
+                        + ", \"differentPixels\": " + entry.mDifferentPixels
+                        + ", \"changedTiles\": " + entry.mChangedTiles);
+                if (entry.mDiffImage != null) {
+                    writer.write(", \"diffImage\": " + quote(entry.mDiffImage));
+                }
+                if (entry.mError != null) {
+                    writer.write(", \"error\": " + quote(entry.mError));
+                }
+                writer.write("}");
+            }
+            writer.write("\n  ]\n}\n");
+        }
+    }
+
+    static String quote(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
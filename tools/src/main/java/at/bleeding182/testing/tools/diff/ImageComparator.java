@@ -0,0 +1,246 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+import at.bleeding182.testing.tools.image.Tiles;
+
+/**
+ * Compares two screenshots of the same size pixel by pixel.
+ * <p>
+ * Both images are split into tiles which are hashed first, only tiles with different hashes are
+ * compared per pixel. Tiles are processed in parallel on a {@link ForkJoinPool}. A pixel counts as
+ * changed if any channel differs by more than the tolerance, unless it is masked or it is an
+ * anti-aliased pixel between two contrasting colors in either image.
+ */
+public class ImageComparator {
+
+    public static final int DEFAULT_TILE_SIZE = 32;
+    public static final int DEFAULT_TOLERANCE = 8;
+
+    /** Number of tiles compared by one task before it stops splitting. */
+    private static final int TILES_PER_TASK = 16;
+
+    private final ForkJoinPool mPool;
+    private final int mTileSize;
+    private final int mTolerance;
+    private final boolean mAntiAliasing;
+    private final Mask mMask;
+
+    /**
+     * @param tolerance    the maximum difference per color channel that is ignored
+     * @param antiAliasing whether to ignore differences of anti-aliased pixels
+     */
+    public ImageComparator(ForkJoinPool pool, int tileSize, int tolerance, boolean antiAliasing, Mask mask) {
+        mPool = pool;
+        mTileSize = tileSize;
+        mTolerance = tolerance;
+        mAntiAliasing = antiAliasing;
+        mMask = mask;
+    }
+
+    /**
+     * @return the differences, or null if the images are of different size
+     */
+    public ImageDiff compare(BufferedImage baseline, BufferedImage current) {
+        if (baseline.getWidth() != current.getWidth() || baseline.getHeight() != current.getHeight()) {
+            return null;
+        }
+        Comparison comparison = new Comparison(ImageFiles.pixels(baseline), ImageFiles.pixels(current),
+                current.getWidth(), current.getHeight());
+        TileTask task = new TileTask(comparison, 0, comparison.mTilesX * comparison.mTilesY);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            mPool.invoke(task);
+        }
+        return new ImageDiff(comparison.mWidth, comparison.mHeight, comparison.mChanged,
+                comparison.mDifferentPixels.get(), comparison.mChangedTiles.get(),
+                comparison.mTilesX * comparison.mTilesY);
+    }
+
+    private class Comparison {
+        final int[] mBaseline;
+        final int[] mCurrent;
+        final int mWidth;
+        final int mHeight;
+        final int mTilesX;
+        final int mTilesY;
+        final boolean[] mChanged;
+        final AtomicInteger mDifferentPixels = new AtomicInteger();
+        final AtomicInteger mChangedTiles = new AtomicInteger();
+
+        Comparison(int[] baseline, int[] current, int width, int height) {
+            mBaseline = baseline;
+            mCurrent = current;
+            mWidth = width;
+            mHeight = height;
+            mTilesX = Tiles.count(width, mTileSize);
+            mTilesY = Tiles.count(height, mTileSize);
+            mChanged = new boolean[width * height];
+        }
+
+        void compareTile(int tile) {
+            int x = (tile % mTilesX) * mTileSize;
+            int y = (tile / mTilesX) * mTileSize;
+            int width = Math.min(mTileSize, mWidth - x);
+            int height = Math.min(mTileSize, mHeight - y);
+            if (mMask.covers(x, y, width, height)
+                    || Tiles.hash(mBaseline, mWidth, x, y, width, height)
+                    == Tiles.hash(mCurrent, mWidth, x, y, width, height)) {
+                return;
+            }
+
+            int different = 0;
+            for (int row = y; row < y + height; row++) {
+                for (int column = x; column < x + width; column++) {
+                    int index = row * mWidth + column;
+                    if (isDifferent(mBaseline[index], mCurrent[index])
+                            && !mMask.isMasked(column, row)
+                            && !(mAntiAliasing && isAntiAliased(column, row))) {
+                        mChanged[index] = true;
+                        different++;
+                    }
+                }
+            }
+            if (different > 0) {
+                mDifferentPixels.addAndGet(different);
+                mChangedTiles.incrementAndGet();
+            }
+        }
+
+        private boolean isAntiAliased(int x, int y) {
+            return isAntiAliased(mBaseline, mCurrent, x, y) || isAntiAliased(mCurrent, mBaseline, x, y);
+        }
+
+        /**
+         * An anti-aliased pixel has a color between a darker and a brighter neighbour, isn't part
+         * of a flat area itself and sits next to a flat area that is there in both images. Pixels
+         * of solid content that moved don't pass, their color is the darkest or brightest around.
+         */
+        private boolean isAntiAliased(int[] pixels, int[] other, int x, int y) {
+            int color = pixels[y * mWidth + x];
+            int luma = luma(color);
+            int equal = 0;
+            int darkest = 0;
+            int brightest = 0;
+            int darkestIndex = -1;
+            int brightestIndex = -1;
+            for (int row = Math.max(0, y - 1); row <= Math.min(mHeight - 1, y + 1); row++) {
+                for (int column = Math.max(0, x - 1); column <= Math.min(mWidth - 1, x + 1); column++) {
+                    if (row == y && column == x) {
+                        continue;
+                    }
+                    int index = row * mWidth + column;
+                    if (!isDifferent(pixels[index], color)) {
+                        if (++equal > 2) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    int delta = luma(pixels[index]) - luma;
+                    if (delta < darkest) {
+                        darkest = delta;
+                        darkestIndex = index;
+                    } else if (delta > brightest) {
+                        brightest = delta;
+                        brightestIndex = index;
+                    }
+                }
+            }
+            if (darkestIndex < 0 || brightestIndex < 0) {
+                return false;
+            }
+            return hasManySiblings(pixels, darkestIndex) && hasManySiblings(other, darkestIndex)
+                    || hasManySiblings(pixels, brightestIndex) && hasManySiblings(other, brightestIndex);
+        }
+
+        /**
+         * @return whether more than two neighbours of the pixel have its color
+         */
+        private boolean hasManySiblings(int[] pixels, int index) {
+            int x = index % mWidth;
+            int y = index / mWidth;
+            int equal = 0;
+            for (int row = Math.max(0, y - 1); row <= Math.min(mHeight - 1, y + 1); row++) {
+                for (int column = Math.max(0, x - 1); column <= Math.min(mWidth - 1, x + 1); column++) {
+                    if ((row != y || column != x) && !isDifferent(pixels[row * mWidth + column], pixels[index])
+                            && ++equal > 2) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static int luma(int color) {
+        return (((color >> 16) & 0xff) * 299 + ((color >> 8) & 0xff) * 587 + (color & 0xff) * 114) / 1000;
+    }
+
+    private boolean isDifferent(int a, int b) {
+        if (a == b) {
+            return false;
+        }
+        for (int shift = 0; shift < 32; shift += 8) {
+            if (Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff)) > mTolerance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class TileTask extends RecursiveAction {
+
+        private final Comparison mComparison;
+        private final int mFrom;
+        private final int mTo;
+
+        TileTask(Comparison comparison, int from, int to) {
+            mComparison = comparison;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= TILES_PER_TASK) {
+                for (int tile = mFrom; tile < mTo; tile++) {
+                    mComparison.compareTile(tile);
+                }
+                return;
+            }
+            int middle = (mFrom + mTo) >>> 1;
+            invokeAll(new TileTask(mComparison, mFrom, middle), new TileTask(mComparison, middle, mTo));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The result of comparing a screenshot against its baseline.
+ */
+public final class ImageDiff {
+
+    private static final int HIGHLIGHT = 0xffff0000;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final boolean[] mChanged;
+    private final int mDifferentPixels;
+    private final int mChangedTiles;
+    private final int mTiles;
+
+    ImageDiff(int width, int height, boolean[] changed, int differentPixels, int changedTiles, int tiles) {
+        mWidth = width;
+        mHeight = height;
+        mChanged = changed;
+        mDifferentPixels = differentPixels;
+        mChangedTiles = changedTiles;
+        mTiles = tiles;
+    }
+
+    public boolean isIdentical() {
+        return mDifferentPixels == 0;
+    }
+
+    public int getDifferentPixels() {
+        return mDifferentPixels;
+    }
+
+    public int getChangedTiles() {
+        return mChangedTiles;
+    }
+
+    public int getTiles() {
+        return mTiles;
+    }
+
+    /**
+     * Draws the changed pixels in red on top of a faded copy of the image.
+     */
+    public BufferedImage highlight(BufferedImage current) {
+        BufferedImage result = new BufferedImage(mWidth, mHeight, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[mWidth];
+        for (int y = 0; y < mHeight; y++) {
+            current.getRGB(0, y, mWidth, 1, row, 0, mWidth);
+            for (int x = 0; x < mWidth; x++) {
+                row[x] = mChanged[y * mWidth + x] ? HIGHLIGHT : fade(row[x]);
+            }
+            result.setRGB(0, y, mWidth, 1, row, 0, mWidth);
+        }
+        return result;
+    }
+
+    private static int fade(int argb) {
+        int gray = (((argb >> 16) & 0xff) + ((argb >> 8) & 0xff) + (argb & 0xff)) / 3;
+        gray = 0xff - (0xff - gray) / 3;
+        return gray << 16 | gray << 8 | gray;
+    }
+}
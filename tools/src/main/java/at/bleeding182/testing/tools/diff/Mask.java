@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regions of a screenshot that are ignored when comparing, e.g. the status bar with its clock.
+ */
+public final class Mask {
+
+    private final List<Rectangle> mRegions = new ArrayList<>();
+    private int mTop;
+
+    /**
+     * Ignores the given number of rows at the top of every image.
+     */
+    public Mask top(int rows) {
+        mTop = Math.max(mTop, rows);
+        return this;
+    }
+
+    public Mask add(Rectangle region) {
+        mRegions.add(region);
+        return this;
+    }
+
+    /**
+     * Parses a region in the form {@code x,y,width,height}.
+     */
+    public Mask add(String region) {
+        String[] parts = region.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected x,y,width,height but was " + region);
+        }
+        return add(new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim())));
+    }
+
+    public boolean isMasked(int x, int y) {
+        if (y < mTop) {
+            return true;
+        }
+        for (Rectangle region : mRegions) {
+            if (region.contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the whole rectangle is ignored
+     */
+    public boolean covers(int x, int y, int width, int height) {
+        if (y + height <= mTop) {
+            return true;
+        }
+        for (Rectangle region : mRegions) {
+            if (region.contains(x, y, width, height)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
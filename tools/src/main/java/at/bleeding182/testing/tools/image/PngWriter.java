@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an RGBA PNG row by row, so an image never has to be held in memory as a whole.
+ */
+public class PngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream mOut;
+    private final int mWidth;
+    private final byte[] mRow;
+    private final DeflaterOutputStream mData;
+    private final Deflater mDeflater = new Deflater(Deflater.BEST_SPEED);
+
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        mOut = new DataOutputStream(out);
+        mWidth = width;
+        mRow = new byte[1 + width * 4];
+
+        mOut.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeByte(8); // bit depth
+        data.writeByte(6); // RGBA
+        data.writeByte(0); // deflate
+        data.writeByte(0); // adaptive filtering
+        data.writeByte(0); // no interlace
+        chunk("IHDR", header.toByteArray(), header.size());
+
+        mData = new DeflaterOutputStream(new OutputStream() {
+            private final byte[] mBuffer = new byte[CHUNK_SIZE];
+            private int mLength;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                while (length > 0) {
+                    int count = Math.min(length, mBuffer.length - mLength);
+                    System.arraycopy(bytes, offset, mBuffer, mLength, count);
+                    mLength += count;
+                    offset += count;
+                    length -= count;
+                    if (mLength == mBuffer.length) {
+                        flush();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (mLength > 0) {
+                    chunk("IDAT", mBuffer, mLength);
+                    mLength = 0;
+                }
+            }
+        }, mDeflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Writes the next row.
+     *
+     * @param argb   ARGB pixels
+     * @param offset index of the first pixel of the row
+     */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        // sub filter, every byte is stored as the difference to the same byte of the pixel to the left
+        mRow[0] = 1;
+        int previous = 0;
+        for (int x = 0; x < mWidth; x++) {
+            int pixel = argb[offset + x];
+            int i = 1 + x * 4;
+            mRow[i] = (byte) ((pixel >> 16) - (previous >> 16));
+            mRow[i + 1] = (byte) ((pixel >> 8) - (previous >> 8));
+            mRow[i + 2] = (byte) (pixel - previous);
+            mRow[i + 3] = (byte) ((pixel >>> 24) - (previous >>> 24));
+            previous = pixel;
+        }
+        mData.write(mRow);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mData.finish();
+        mData.flush();
+        mDeflater.end();
+        chunk("IEND", new byte[0], 0);
+        mOut.flush();
+    }
+
+    private void chunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        mOut.writeInt(length);
+        mOut.write(name);
+        mOut.write(data, 0, length);
+        mOut.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Replaces every {@code .raw} screenshot below a directory with a PNG of the same name.
+ */
+public final class RawConverter {
+
+    private RawConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RawConverter <screenshots dir>");
+            System.exit(1);
+        }
+        Path root = Paths.get(args[0]);
+        if (!Files.isDirectory(root)) {
+            System.out.println("Nothing to convert in " + root);
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (name.endsWith(RawImage.EXTENSION)) {
+                    convert(file, file.resolveSibling(
+                            name.substring(0, name.length() - RawImage.EXTENSION.length()) + ".png"));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static void convert(Path raw, Path png) throws IOException {
+        BufferedImage image;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(raw), 64 * 1024)) {
+            image = RawImage.read(in);
+        }
+        ImageIO.write(image, "png", png.toFile());
+        Files.delete(raw);
+        System.out.println("Converted " + png);
+    }
+}
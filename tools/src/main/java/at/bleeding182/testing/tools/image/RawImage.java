@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the raw pixel dumps written by the device side {@code RawEncoder}.
+ * <p>
+ * The file starts with a big endian header of five ints: the magic {@code RAW1}, width, height,
+ * pixel format ({@value #FORMAT_RGBA_8888} for premultiplied RGBA_8888, {@value #FORMAT_RGB_565}
+ * for little endian RGB_565) and the bytes per row.
+ */
+public final class RawImage {
+
+    public static final String EXTENSION = ".raw";
+
+    static final int MAGIC = 0x52415731;
+    static final int FORMAT_RGBA_8888 = 1;
+    static final int FORMAT_RGB_565 = 2;
+
+    private RawImage() {
+    }
+
+    public static BufferedImage read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a raw screenshot");
+        }
+        int width = data.readInt();
+        int height = data.readInt();
+        int format = data.readInt();
+        int rowBytes = data.readInt();
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = new int[width];
+        byte[] row = new byte[rowBytes];
+        for (int y = 0; y < height; y++) {
+            data.readFully(row);
+            switch (format) {
+                case FORMAT_RGBA_8888:
+                    decodeRgba8888(row, argb);
+                    break;
+                case FORMAT_RGB_565:
+                    decodeRgb565(row, argb);
+                    break;
+                default:
+                    throw new IOException("Unknown pixel format " + format);
+            }
+            image.setRGB(0, y, width, 1, argb, 0, width);
+        }
+        return image;
+    }
+
+    private static void decodeRgba8888(byte[] row, int[] argb) {
+        for (int x = 0; x < argb.length; x++) {
+            int r = row[x * 4] & 0xff;
+            int g = row[x * 4 + 1] & 0xff;
+            int b = row[x * 4 + 2] & 0xff;
+            int a = row[x * 4 + 3] & 0xff;
+            if (a != 0 && a != 0xff) {
+                // android stores premultiplied alpha
+                r = Math.min(0xff, r * 0xff / a);
+                g = Math.min(0xff, g * 0xff / a);
+                b = Math.min(0xff, b * 0xff / a);
+            }
+            argb[x] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    private static void decodeRgb565(byte[] row, int[] argb) {
+        for (int x = 0; x < argb.length; x++) {
+            int pixel = (row[x * 2] & 0xff) | (row[x * 2 + 1] & 0xff) << 8;
+            int r = (pixel >> 11) & 0x1f;
+            int g = (pixel >> 5) & 0x3f;
+            int b = pixel & 0x1f;
+            argb[x] = 0xff000000 | (r << 3 | r >> 2) << 16 | (g << 2 | g >> 4) << 8 | (b << 3 | b >> 2);
+        }
+    }
+}
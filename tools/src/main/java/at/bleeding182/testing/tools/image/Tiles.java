@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.image;
+
+/**
+ * Splits images into fixed-size tiles and hashes them, so unchanged regions can be recognized
+ * without comparing every pixel.
+ */
+public final class Tiles {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Tiles() {
+    }
+
+    /**
+     * @return the number of tiles needed to cover the given length
+     */
+    public static int count(int length, int tileSize) {
+        return (length + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Hashes a tile of an image, tiles at the right and bottom edge may be smaller.
+     *
+     * @param pixels ARGB pixels of the whole image
+     * @param stride the width of the image
+     */
+    public static long hash(int[] pixels, int stride, int x, int y, int width, int height) {
+        long hash = FNV_OFFSET;
+        for (int row = y; row < y + height; row++) {
+            int offset = row * stride;
+            for (int column = x; column < x + width; column++) {
+                hash = (hash ^ pixels[offset + column]) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+}
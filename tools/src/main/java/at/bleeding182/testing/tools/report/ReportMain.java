@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.report;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line entry point of the screenshot report.
+ * <p>
+ * {@code ReportMain <screenshots dir> <output dir> [--width <px>] [--threads <n>]}
+ * <p>
+ * Writes {@code index.html}, the thumbnails, a contact sheet per locale and copies of the
+ * screenshots to the output directory. Thumbnails of earlier runs in the same output directory are
+ * reused.
+ */
+public final class ReportMain {
+
+    private static final int DEFAULT_WIDTH = 180;
+
+    private ReportMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReportMain <screenshots dir> <output dir> [--width <px>] [--threads <n>]");
+            System.exit(2);
+        }
+        int width = DEFAULT_WIDTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--width":
+                    width = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Path root = Paths.get(args[0]);
+        if (!Files.isDirectory(root)) {
+            System.out.println("No screenshots in " + root);
+            return;
+        }
+        Path output = Paths.get(args[1]);
+        ScreenshotReport report = new ScreenshotReport(new Thumbnailer(width), threads);
+        report.run(root, output);
+        System.out.println(report);
+        System.out.println("Report written to " + output.resolve("index.html"));
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.report;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+import at.bleeding182.testing.tools.image.PngWriter;
+
+/**
+ * Builds a browsable report of a pulled screenshot tree, {@code <locale>/<screen>}.
+ * <p>
+ * The tree is walked once and every screenshot is scaled to a thumbnail on a pool of threads,
+ * with a bounded queue so only a few images are decoded at a time. Thumbnails are named after the
+ * content hash of their screenshot, so a rerun only scales new or changed screenshots. The hash of
+ * a file is remembered with its size and modification time, unchanged files are not even read.
+ * <p>
+ * The output directory gets an {@code index.html} with a grid of locales by screens and a contact
+ * sheet per locale in {@code sheets/}. The grid links to copies of the screenshots in
+ * {@code images/}, also named after their content, so the report can be published on its own.
+ */
+public class ScreenshotReport {
+
+    private static final int SHEET_COLUMNS = 6;
+    private static final int SHEET_PADDING = 8;
+    private static final int LABEL_HEIGHT = 18;
+
+    private final Thumbnailer mThumbnailer;
+    private final int mThreads;
+    private final AtomicInteger mImages = new AtomicInteger();
+    private final AtomicInteger mScaled = new AtomicInteger();
+    private final AtomicInteger mSheets = new AtomicInteger();
+    private long mTime;
+
+    public ScreenshotReport(Thumbnailer thumbnailer, int threads) {
+        mThumbnailer = thumbnailer;
+        mThreads = threads;
+    }
+
+    /**
+     * @param root   the pulled screenshots
+     * @param output the directory to write the report to
+     */
+    public void run(final Path root, final Path output) throws IOException {
+        long start = System.nanoTime();
+        mImages.set(0);
+        mScaled.set(0);
+        mSheets.set(0);
+        final Path thumbs = output.resolve("thumbs");
+        final Path images = output.resolve("images");
+        final Path skipped = output.toAbsolutePath().normalize();
+        // identical screenshots, e.g. of locales without translations, share one thumbnail
+        final Set<String> claimed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        Files.createDirectories(thumbs);
+        Files.createDirectories(images);
+        Files.createDirectories(output.resolve("sheets"));
+        final Path indexFile = thumbs.resolve("index.txt");
+        final Map<String, String> index = readIndex(indexFile);
+        final Map<String, String> newIndex = new ConcurrentHashMap<>();
+        // path -> copy in images/
+        final Map<String, String> originals = new ConcurrentHashMap<>();
+
+        // the walk scales images itself while the queue is full, which bounds the images in memory
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(mThreads, mThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(mThreads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        // locale -> screen -> thumbnail
+        final Map<String, Map<String, Future<String>>> grid = new TreeMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // don't report on a report written into the tree
+                    return dir.toAbsolutePath().normalize().equals(skipped)
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    if (!Thumbnailer.accepts(file)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final String path = root.relativize(file).toString().replace('\\', '/');
+                    int slash = path.indexOf('/');
+                    String locale = slash > 0 ? path.substring(0, slash) : "-";
+                    Map<String, Future<String>> screens = grid.get(locale);
+                    if (screens == null) {
+                        screens = new TreeMap<>();
+                        grid.put(locale, screens);
+                    }
+                    mImages.incrementAndGet();
+                    screens.put(path.substring(slash + 1), executor.submit(new Callable<String>() {
+                        @Override
+                        public String call() throws IOException {
+                            String stamp = attrs.size() + "\t" + attrs.lastModifiedTime().toMillis() + "\t";
+                            String known = index.get(path);
+                            String hash = known != null && known.startsWith(stamp)
+                                    ? known.substring(stamp.length()) : sha1(file);
+                            newIndex.put(path, stamp + hash);
+                            String thumbnail = hash + "-" + mThumbnailer.getWidth() + ".png";
+                            Path target = thumbs.resolve(thumbnail);
+                            if (claimed.add(thumbnail) && !Files.exists(target)) {
+                                write(mThumbnailer.create(file), target);
+                                mScaled.incrementAndGet();
+                            }
+                            String image = hash + (".jpg".equals(extension(file)) ? ".jpg" : ".png");
+                            if (claimed.add(image) && !Files.exists(images.resolve(image))) {
+                                copyOriginal(file, images.resolve(image));
+                            }
+                            originals.put(path, image);
+                            return thumbnail;
+                        }
+                    }));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            final Map<String, Map<String, String>> thumbnails = new TreeMap<>();
+            for (Map.Entry<String, Map<String, Future<String>>> locale : grid.entrySet()) {
+                Map<String, String> screens = new TreeMap<>();
+                for (Map.Entry<String, Future<String>> screen : locale.getValue().entrySet()) {
+                    screens.put(screen.getKey(), get(screen.getValue()));
+                }
+                thumbnails.put(locale.getKey(), screens);
+            }
+
+            List<Future<?>> sheets = new ArrayList<>();
+            for (final Map.Entry<String, Map<String, String>> locale : thumbnails.entrySet()) {
+                sheets.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        writeSheet(thumbs, output.resolve("sheets"), locale.getKey(), locale.getValue());
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> sheet : sheets) {
+                get(sheet);
+            }
+
+            writeIndex(indexFile, newIndex);
+            Set<String> used = new HashSet<>();
+            for (Map<String, String> screens : thumbnails.values()) {
+                used.addAll(screens.values());
+            }
+            prune(thumbs, "*.png", used);
+            prune(images, "*", new HashSet<>(originals.values()));
+            writeHtml(output, thumbnails, originals);
+        } finally {
+            executor.shutdown();
+        }
+        mTime = (System.nanoTime() - start) / 1000000;
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static Map<String, String> readIndex(Path file) throws IOException {
+        Map<String, String> index = new ConcurrentHashMap<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    index.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+        return index;
+    }
+
+    private static void writeIndex(Path file, Map<String, String> index) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(index).entrySet()) {
+            lines.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Deletes thumbnails and copies of screenshots that are gone.
+     */
+    private static void prune(Path directory, String glob, Set<String> used) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                if (!used.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the thumbnails of a locale into one image, unless the sheet is up to date.
+     */
+    private void writeSheet(Path thumbs, Path sheets, String locale, Map<String, String> screens)
+            throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> screen : screens.entrySet()) {
+            content.append(screen.getKey()).append('\t').append(screen.getValue()).append('\n');
+        }
+        Path keyFile = sheets.resolve(locale + ".txt");
+        Path sheetFile = sheets.resolve(locale + ".png");
+        if (Files.exists(sheetFile) && Files.exists(keyFile)
+                && new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8).equals(content.toString())) {
+            return;
+        }
+
+        List<BufferedImage> images = new ArrayList<>();
+        int cellHeight = 0;
+        for (String thumbnail : screens.values()) {
+            BufferedImage image = ImageIO.read(thumbs.resolve(thumbnail).toFile());
+            images.add(image);
+            cellHeight = Math.max(cellHeight, image.getHeight());
+        }
+        int cellWidth = mThumbnailer.getWidth() + SHEET_PADDING;
+        cellHeight += SHEET_PADDING + LABEL_HEIGHT;
+        int columns = Math.min(SHEET_COLUMNS, images.size());
+        int rows = (images.size() + columns - 1) / columns;
+        BufferedImage sheet = new BufferedImage(columns * cellWidth + SHEET_PADDING, rows * cellHeight + SHEET_PADDING,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = sheet.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+        int i = 0;
+        for (String screen : screens.keySet()) {
+            int x = SHEET_PADDING + (i % columns) * cellWidth;
+            int y = SHEET_PADDING + (i / columns) * cellHeight;
+            g.drawImage(images.get(i), x, y, null);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(screen, x, y + cellHeight - SHEET_PADDING - 5);
+            i++;
+        }
+        g.dispose();
+        write(sheet, sheetFile);
+        Files.write(keyFile, content.toString().getBytes(StandardCharsets.UTF_8));
+        mSheets.incrementAndGet();
+    }
+
+    private static void writeHtml(Path output, Map<String, Map<String, String>> thumbnails,
+                                  Map<String, String> originals) throws IOException {
+        Set<String> screens = new TreeSet<>();
+        for (Map<String, String> locale : thumbnails.values()) {
+            screens.addAll(locale.keySet());
+        }
+        try (Writer out = Files.newBufferedWriter(output.resolve("index.html"), StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Screenshots</title>\n"
+                    + "<style>body{font-family:sans-serif}table{border-collapse:collapse}"
+                    + "th,td{border:1px solid #ddd;padding:4px;vertical-align:top}"
+                    + "th{position:sticky;top:0;background:#fafafa}img{display:block}</style>\n</head>\n<body>\n");
+            out.write("<h1>" + screens.size() + " screens in " + thumbnails.size() + " locales</h1>\n<table>\n<tr><th></th>");
+            for (String locale : thumbnails.keySet()) {
+                out.write("<th><a href=\"sheets/" + escape(locale) + ".png\">" + escape(locale) + "</a></th>");
+            }
+            out.write("</tr>\n");
+            for (String screen : screens) {
+                out.write("<tr><th>" + escape(screen) + "</th>");
+                for (Map.Entry<String, Map<String, String>> locale : thumbnails.entrySet()) {
+                    String thumbnail = locale.getValue().get(screen);
+                    if (thumbnail == null) {
+                        out.write("<td></td>");
+                        continue;
+                    }
+                    String original = originals.get("-".equals(locale.getKey()) ? screen : locale.getKey() + "/" + screen);
+                    out.write("<td><a href=\"images/" + original + "\"><img src=\"thumbs/" + thumbnail
+                            + "\" loading=\"lazy\" title=\"" + escape(locale.getKey() + "/" + screen) + "\"></a></td>");
+                }
+                out.write("</tr>\n");
+            }
+            out.write("</table>\n</body>\n</html>\n");
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot) : "";
+    }
+
+    private static void copyOriginal(Path file, Path target) throws IOException {
+        String extension = extension(file);
+        if (!".png".equals(extension) && !".jpg".equals(extension)) {
+            // raw pixel dumps can't be shown by a browser
+            write(ImageFiles.read(file), target);
+            return;
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        int[] pixels = ImageFiles.pixels(image);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            PngWriter writer = new PngWriter(out, image.getWidth(), image.getHeight());
+            for (int y = 0; y < image.getHeight(); y++) {
+                writer.writeRow(pixels, y * image.getWidth());
+            }
+            writer.close();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha1(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) != -1) {
+                    // only digesting
+                }
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return how many screenshots the last run reported on
+     */
+    public int getImages() {
+        return mImages.get();
+    }
+
+    /**
+     * @return how many thumbnails the last run had to create
+     */
+    public int getScaled() {
+        return mScaled.get();
+    }
+
+    @Override
+    public String toString() {
+        return mImages.get() + " screenshots, " + mScaled.get() + " thumbnails created, "
+                + (mImages.get() - mScaled.get()) + " cached, " + mSheets.get() + " contact sheets written in "
+                + mTime + "ms";
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A device connected through {@code adb}.
+ * <p>
+ * When streaming, the instrumentation runs with {@code -e streamScreenshots true}: every
+ * screenshot it reports is pulled while the tests keep running and deleted from the device once it
+ * is on the host. Otherwise the whole screenshot directory is pulled after the run.
+ */
+public class AdbDevice implements Device {
+
+    /** Where the tests write their screenshots on the device. */
+    public static final String SCREENSHOTS_DIR = "/sdcard/test";
+
+    private static final String KEY_SCREENSHOT = "screenshot";
+    private static final int STATUS_IN_PROGRESS = 2;
+
+    private final String mAdb;
+    private final String mSerial;
+    private final String mTestPackage;
+    private final String mRunner;
+    private final boolean mStreaming;
+    private final ScreenshotListener mListener;
+
+    /**
+     * @param adb         path of the adb executable
+     * @param testPackage package of the test apk
+     * @param runner      class name of the instrumentation runner
+     * @param streaming   whether to pull screenshots as soon as they are written
+     * @param listener    notified about every screenshot on the host, may be null
+     */
+    public AdbDevice(String adb, String serial, String testPackage, String runner, boolean streaming,
+                     ScreenshotListener listener) {
+        mAdb = adb;
+        mSerial = serial;
+        mTestPackage = testPackage;
+        mRunner = runner;
+        mStreaming = streaming;
+        mListener = listener;
+    }
+
+    /**
+     * @return the serials of all devices that are online
+     */
+    public static List<String> listSerials(String adb) throws IOException, InterruptedException {
+        List<String> serials = new ArrayList<>();
+        for (String line : run(Arrays.asList(adb, "devices"))) {
+            String[] parts = line.split("\\s+");
+            if (parts.length == 2 && "device".equals(parts[1])) {
+                serials.add(parts[0]);
+            }
+        }
+        return serials;
+    }
+
+    @Override
+    public String getSerial() {
+        return mSerial;
+    }
+
+    @Override
+    public void install(Path apk, Path testApk) throws IOException, InterruptedException {
+        adb("install", "-r", apk.toString());
+        adb("install", "-r", testApk.toString());
+    }
+
+    @Override
+    public void instrument(WorkItem item, final Path directory) throws IOException, InterruptedException {
+        String remoteDir = SCREENSHOTS_DIR + "/" + item.getLanguage();
+        adb("shell", "rm", "-r", remoteDir);
+
+        List<String> command = command("shell", "am", "instrument", "-w", "-r",
+                "-e", "class", item.getScenario(),
+                "-e", "locales", item.getLanguage(),
+                "-e", "streamScreenshots", String.valueOf(mStreaming),
+                mTestPackage + "/" + mRunner);
+        final ExecutorService puller = Executors.newSingleThreadExecutor();
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        InstrumentationStream stream = new InstrumentationStream(new InstrumentationStream.Listener() {
+            @Override
+            public void onStatus(int code, Map<String, String> values) {
+                // -1 is an error, -2 a failure; ignored tests and assumption failures are fine
+                if (code == -1 || code == -2) {
+                    failures.add(values.get("class") + "#" + values.get("test") + ": " + values.get("stack"));
+                }
+                final String remote = values.get(KEY_SCREENSHOT);
+                if (code == STATUS_IN_PROGRESS && remote != null) {
+                    puller.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                pullAndDelete(remote, directory);
+                            } catch (IOException | InterruptedException e) {
+                                failures.add("Could not pull " + remote + ": " + e.getMessage());
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("INSTRUMENTATION_FAILED")) {
+                    failures.add(line);
+                }
+                stream.onLine(line);
+            }
+        } finally {
+            puller.shutdown();
+            puller.awaitTermination(10, TimeUnit.MINUTES);
+        }
+        if (process.waitFor() != 0) {
+            failures.add("am instrument exited with " + process.exitValue());
+        }
+        if (!failures.isEmpty()) {
+            throw new IOException(item + " failed on " + mSerial + ": " + failures);
+        }
+        if (!mStreaming) {
+            // the target must not exist yet, so old and new adb versions both put the files directly into it
+            adb("pull", remoteDir, directory.resolve(item.getLanguage()).toString());
+        }
+    }
+
+    private void pullAndDelete(String remote, Path directory) throws IOException, InterruptedException {
+        String relative = remote.startsWith(SCREENSHOTS_DIR + "/")
+                ? remote.substring(SCREENSHOTS_DIR.length() + 1) : Paths.get(remote).getFileName().toString();
+        Path local = directory.resolve(relative);
+        Files.createDirectories(local.getParent());
+        adb("pull", remote, local.toString());
+        // the host has the file, free the space on the device
+        adb("shell", "rm", remote);
+        if (mListener != null) {
+            mListener.onScreenshot(this, local);
+        }
+    }
+
+    private List<String> adb(String... args) throws IOException, InterruptedException {
+        return run(command(args));
+    }
+
+    private List<String> command(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(mAdb);
+        command.add("-s");
+        command.add(mSerial);
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    private static List<String> run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        int exit = process.waitFor();
+        // rm of a missing directory is not an error
+        if (exit != 0 && !command.contains("rm")) {
+            throw new IOException(command + " exited with " + exit + ": " + lines);
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return mSerial;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A device or emulator screenshots can be taken on.
+ */
+public interface Device {
+
+    String getSerial();
+
+    /**
+     * Installs the app and the test apk, replacing older versions.
+     */
+    void install(Path apk, Path testApk) throws IOException, InterruptedException;
+
+    /**
+     * Runs the instrumentation for a single work item and copies its screenshots into a local
+     * directory, keeping the layout of the device's screenshot directory.
+     *
+     * @throws IOException if the instrumentation could not be run, a test failed or a screenshot could
+     *                     not be copied
+     */
+    void instrument(WorkItem item, Path directory) throws IOException, InterruptedException;
+}
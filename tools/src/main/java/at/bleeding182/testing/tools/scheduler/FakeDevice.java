@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Stands in for a real device: sleeps instead of installing and instrumenting, and "captures" a
+ * small text file per work item into its own storage directory, which is streamed to the host
+ * right away.
+ * <p>
+ * Used to try out and test scheduling without any emulator.
+ */
+public class FakeDevice implements Device {
+
+    private final String mSerial;
+    private final Path mStorage;
+    private final long mInstallLatency;
+    private final long mItemLatency;
+    private final Set<String> mFailingLanguages = Collections.synchronizedSet(new HashSet<String>());
+    private volatile boolean mBroken;
+    private volatile ScreenshotListener mListener;
+    private int mInstrumentations;
+
+    /**
+     * @param storage        directory that simulates the device storage
+     * @param installLatency time an install takes in milliseconds
+     * @param itemLatency    time an instrumentation takes in milliseconds
+     */
+    public FakeDevice(String serial, Path storage, long installLatency, long itemLatency) {
+        mSerial = serial;
+        mStorage = storage;
+        mInstallLatency = installLatency;
+        mItemLatency = itemLatency;
+    }
+
+    /**
+     * Makes every instrumentation of the language fail on this device.
+     */
+    public FakeDevice failOn(String language) {
+        mFailingLanguages.add(language);
+        return this;
+    }
+
+    /**
+     * Makes the device fail everything from now on, like an emulator that hangs.
+     */
+    public FakeDevice breakDown() {
+        mBroken = true;
+        return this;
+    }
+
+    public FakeDevice setListener(ScreenshotListener listener) {
+        mListener = listener;
+        return this;
+    }
+
+    public synchronized int getInstrumentations() {
+        return mInstrumentations;
+    }
+
+    @Override
+    public String getSerial() {
+        return mSerial;
+    }
+
+    @Override
+    public void install(Path apk, Path testApk) throws IOException, InterruptedException {
+        Thread.sleep(mInstallLatency);
+        if (mBroken) {
+            throw new IOException(mSerial + " is offline");
+        }
+    }
+
+    @Override
+    public void instrument(WorkItem item, Path directory) throws IOException, InterruptedException {
+        synchronized (this) {
+            mInstrumentations++;
+        }
+        Thread.sleep(mItemLatency);
+        if (mBroken || mFailingLanguages.contains(item.getLanguage())) {
+            throw new IOException(item + " failed on " + mSerial);
+        }
+        Path file = mStorage.resolve(item.getLanguage()).resolve(item.getScenario() + ".png");
+        Files.createDirectories(file.getParent());
+        Files.write(file, (item + " on " + mSerial).getBytes(StandardCharsets.UTF_8));
+
+        // streamed right away, like AdbDevice does with -e streamScreenshots
+        Path target = directory.resolve(item.getLanguage()).resolve(file.getFileName());
+        Files.createDirectories(target.getParent());
+        Files.move(file, target);
+        if (mListener != null) {
+            mListener.onScreenshot(this, target);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mSerial;
+    }
+}
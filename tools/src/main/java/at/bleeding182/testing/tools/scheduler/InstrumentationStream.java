@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses the output of {@code am instrument -r} line by line while it is running.
+ * <p>
+ * Status blocks consist of {@code INSTRUMENTATION_STATUS: key=value} lines, values may continue on
+ * the following lines, and end with an {@code INSTRUMENTATION_STATUS_CODE: <code>} line.
+ */
+public class InstrumentationStream {
+
+    /** Receives parsed status blocks. */
+    public interface Listener {
+        void onStatus(int code, Map<String, String> values);
+    }
+
+    private static final String STATUS = "INSTRUMENTATION_STATUS: ";
+    private static final String STATUS_CODE = "INSTRUMENTATION_STATUS_CODE: ";
+
+    private final Listener mListener;
+    private Map<String, String> mValues = new HashMap<>();
+    private String mLastKey;
+
+    public InstrumentationStream(Listener listener) {
+        mListener = listener;
+    }
+
+    public void onLine(String line) {
+        if (line.startsWith(STATUS)) {
+            String entry = line.substring(STATUS.length());
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                mLastKey = entry.substring(0, separator);
+                mValues.put(mLastKey, entry.substring(separator + 1));
+            }
+        } else if (line.startsWith(STATUS_CODE)) {
+            Map<String, String> values = mValues;
+            mValues = new HashMap<>();
+            mLastKey = null;
+            mListener.onStatus(Integer.parseInt(line.substring(STATUS_CODE.length()).trim()), values);
+        } else if (line.startsWith("INSTRUMENTATION_")) {
+            mLastKey = null;
+        } else if (mLastKey != null) {
+            mValues.put(mLastKey, mValues.get(mLastKey) + "\n" + line);
+        }
+    }
+}
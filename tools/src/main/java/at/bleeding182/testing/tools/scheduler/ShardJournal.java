@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of the finished work items of a sharded run, kept next to the output tree.
+ * <p>
+ * Every file an item merged into the output is written as one line with its SHA-1, followed by a
+ * line that marks the item as done on its device. The lines of an item are synced to disk before
+ * it counts as finished. A restarted run skips every item whose files are still in the output with
+ * the recorded checksums, so it only redoes what was lost. A torn last item is ignored.
+ * <p>
+ * The first line names the build the items were run against, see {@link #build(Path...)}. A
+ * journal of another build is discarded, its screenshots would not show the apks under test.
+ */
+public class ShardJournal {
+
+    private static final String FILE = "file";
+    private static final String DONE = "done";
+    private static final String BUILD = "build";
+
+    private final Path mFile;
+    private final Path mOutput;
+    private final String mBuild;
+    private final Map<String, Map<String, String>> mDone = new HashMap<>();
+    private FileChannel mChannel;
+    private boolean mDiscarded;
+
+    /**
+     * @param file   the journal, created on the first finished item
+     * @param output the output tree the recorded paths are relative to
+     * @param build  identifies the apks of the run, e.g. from {@link #build(Path...)}
+     */
+    public ShardJournal(Path file, Path output, String build) throws IOException {
+        mFile = file;
+        mOutput = output;
+        mBuild = build;
+        read();
+    }
+
+    /**
+     * @return the SHA-1 of the contents of the files, an apk that does not exist counts by its name
+     */
+    public static String build(Path... apks) throws IOException {
+        StringBuilder checksums = new StringBuilder();
+        for (Path apk : apks) {
+            checksums.append(Files.isRegularFile(apk) ? sha1(apk) : "missing " + apk).append('\n');
+        }
+        return hex(digest().digest(checksums.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void read() throws IOException {
+        if (!Files.isRegularFile(mFile)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(mFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !(BUILD + "\t" + mBuild).equals(lines.get(0))) {
+            Files.delete(mFile);
+            mDiscarded = !lines.isEmpty();
+            return;
+        }
+        Map<String, Map<String, String>> pending = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] parts = line.split("\t");
+            if (parts.length == 5 && FILE.equals(parts[0]) && parts[4].length() == 40) {
+                String item = key(parts[1], parts[2]);
+                if (!pending.containsKey(item)) {
+                    pending.put(item, new LinkedHashMap<String, String>());
+                }
+                pending.get(item).put(parts[3], parts[4]);
+            } else if (parts.length == 4 && DONE.equals(parts[0])) {
+                String item = key(parts[1], parts[2]);
+                Map<String, String> files = pending.remove(item);
+                mDone.put(item, files != null ? files : new LinkedHashMap<String, String>());
+            }
+        }
+    }
+
+    /**
+     * @return whether the journal was left by a run against other apks and has been deleted
+     */
+    public boolean isDiscarded() {
+        return mDiscarded;
+    }
+
+    /**
+     * @return whether an earlier run finished the item and all of its files are still intact
+     */
+    public synchronized boolean isDone(WorkItem item) throws IOException {
+        Map<String, String> files = mDone.get(key(item.getLanguage(), item.getScenario()));
+        if (files == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path path = mOutput.resolve(file.getKey());
+            if (!Files.isRegularFile(path) || !file.getValue().equals(sha1(path))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a finished item with the files it merged into the output and syncs the journal.
+     *
+     * @param files the merged files, relative to the output tree
+     */
+    public synchronized void record(WorkItem item, Device device, List<String> files) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        Map<String, String> checksums = new LinkedHashMap<>();
+        for (String file : files) {
+            String checksum = sha1(mOutput.resolve(file));
+            checksums.put(file, checksum);
+            lines.append(FILE).append('\t').append(item.getLanguage()).append('\t').append(item.getScenario())
+                    .append('\t').append(file).append('\t').append(checksum).append('\n');
+        }
+        lines.append(DONE).append('\t').append(item.getLanguage()).append('\t').append(item.getScenario())
+                .append('\t').append(device.getSerial()).append('\n');
+
+        if (mChannel == null) {
+            Files.createDirectories(mFile.toAbsolutePath().getParent());
+            mChannel = FileChannel.open(mFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            if (mChannel.size() == 0) {
+                lines.insert(0, BUILD + "\t" + mBuild + "\n");
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer);
+        }
+        mChannel.force(false);
+        mDone.put(key(item.getLanguage(), item.getScenario()), checksums);
+    }
+
+    public synchronized void close() throws IOException {
+        if (mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    private static String key(String language, String scenario) {
+        return language + "\t" + scenario;
+    }
+
+    private static String sha1(Path file) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command line entry point of the sharded screenshot run.
+ * <p>
+ * {@code ShardMain --apk <app.apk> --test-apk <test.apk> --out <dir>
+ * (--locales en,de,fr | --resource-index <resource-index.txt>) [--scenarios <test class>,...] [--devices <serial>,...] [--attempts <n>] [--adb <path>]
+ * [--test-package <package>] [--runner <class>] [--stream] [--journal <file>|off] [--fake <devices>:<latency ms>]}
+ * <p>
+ * {@code --resource-index} takes the languages from the index the app's {@code resourceIndex} task
+ * writes. Without {@code --devices} every online device is used. {@code --stream} pulls every screenshot
+ * as soon as it is written and deletes it from the device. The {@link ShardJournal} is kept in
+ * {@code <out>-journal.txt} unless {@code --journal} names another file or turns it off, and is
+ * discarded when the apks changed. {@code --fake} replaces the devices with {@link FakeDevice}s to
+ * try out scheduling without any emulator.
+ */
+public final class ShardMain {
+
+    private ShardMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String apk = null;
+        String testApk = null;
+        String out = null;
+        String locales = null;
+        String scenarios = "at.bleeding182.testing.instrumentationtest.Screenshots";
+        String serials = null;
+        String fake = null;
+        String journal = null;
+        boolean streaming = false;
+        int attempts = 3;
+        String adb = "adb";
+        String testPackage = "at.bleeding182.testing.instrumentationtest.test";
+        String runner = "at.bleeding182.testing.instrumentationtest.ScreenshotTestRunner";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--apk":
+                    apk = args[++i];
+                    break;
+                case "--test-apk":
+                    testApk = args[++i];
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--locales":
+                    locales = args[++i];
+                    break;
+                case "--resource-index":
+                    locales = languages(Paths.get(args[++i]));
+                    break;
+                case "--scenarios":
+                    scenarios = args[++i];
+                    break;
+                case "--devices":
+                    serials = args[++i];
+                    break;
+                case "--attempts":
+                    attempts = Integer.parseInt(args[++i]);
+                    break;
+                case "--adb":
+                    adb = args[++i];
+                    break;
+                case "--test-package":
+                    testPackage = args[++i];
+                    break;
+                case "--runner":
+                    runner = args[++i];
+                    break;
+                case "--stream":
+                    streaming = true;
+                    break;
+                case "--journal":
+                    journal = args[++i];
+                    break;
+                case "--fake":
+                    fake = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (apk == null || testApk == null || out == null || locales == null) {
+            System.err.println("Usage: ShardMain --apk <app.apk> --test-apk <test.apk> --out <dir> "
+                    + "(--locales en,de,fr | --resource-index <file>) [--scenarios <test class>,...] [--devices <serial>,...] [--attempts <n>] [--adb <path>] "
+                    + "[--test-package <package>] [--runner <class>] [--stream] [--journal <file>|off] [--fake <devices>:<latency ms>]");
+            System.exit(2);
+        }
+
+        ScreenshotListener listener = new ScreenshotListener() {
+            @Override
+            public void onScreenshot(Device device, Path file) {
+                System.out.println("Received " + file.getFileName() + " from " + device);
+            }
+        };
+        List<Device> devices = new ArrayList<>();
+        if (fake != null) {
+            String[] parts = fake.split(":");
+            Path storage = Files.createTempDirectory("fake-devices");
+            for (int i = 0; i < Integer.parseInt(parts[0]); i++) {
+                devices.add(new FakeDevice("fake-" + i, storage.resolve("fake-" + i), 100, Long.parseLong(parts[1]))
+                        .setListener(listener));
+            }
+        } else {
+            List<String> online = serials != null ? Arrays.asList(serials.split(",")) : AdbDevice.listSerials(adb);
+            for (String serial : online) {
+                devices.add(new AdbDevice(adb, serial, testPackage, runner, streaming, listener));
+            }
+        }
+        if (devices.isEmpty()) {
+            System.err.println("No devices");
+            System.exit(1);
+        }
+
+        List<WorkItem> items = new ArrayList<>();
+        for (String scenario : scenarios.split(",")) {
+            for (String language : locales.split(",")) {
+                items.add(new WorkItem(language, scenario));
+            }
+        }
+
+        Path output = Paths.get(out).toAbsolutePath();
+        ShardJournal shardJournal = null;
+        if (!"off".equals(journal)) {
+            shardJournal = new ShardJournal(journal != null ? Paths.get(journal)
+                    : output.resolveSibling(output.getFileName() + "-journal.txt"), output,
+                    ShardJournal.build(Paths.get(apk), Paths.get(testApk)));
+            if (shardJournal.isDiscarded()) {
+                System.out.println("Discarded the journal of a run against other apks");
+            }
+        }
+
+        long start = System.nanoTime();
+        ShardResult result;
+        try {
+            result = new ShardScheduler(devices, attempts, shardJournal)
+                    .run(items, Paths.get(apk), Paths.get(testApk), output);
+        } finally {
+            if (shardJournal != null) {
+                shardJournal.close();
+            }
+        }
+        System.out.println(result);
+        System.out.println("Took " + (System.nanoTime() - start) / 1000000 + "ms on " + devices.size() + " devices");
+        System.exit(result.isSuccessful() ? 0 : 1);
+    }
+
+    /**
+     * Reads the languages of the locale column of a resource index.
+     *
+     * @return the comma separated languages
+     */
+    static String languages(Path index) throws IOException {
+        Set<String> languages = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String locale = line.split("\t", -1)[1];
+            if (!locale.isEmpty()) {
+                languages.add(locale.split("_")[0]);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String language : languages) {
+            builder.append(builder.length() > 0 ? "," : "").append(language);
+        }
+        return builder.toString();
+    }
+}
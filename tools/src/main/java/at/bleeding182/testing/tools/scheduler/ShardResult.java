@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of every work item of a sharded run.
+ */
+public final class ShardResult {
+
+    private final List<String> mSucceeded = new ArrayList<>();
+    private final List<String> mFailed = new ArrayList<>();
+    private final List<String> mResumed = new ArrayList<>();
+
+    synchronized void succeeded(WorkItem item, Device device, long duration) {
+        mSucceeded.add(item + " on " + device.getSerial() + " in " + duration + "ms, attempt " + item.getAttempts());
+    }
+
+    synchronized void failed(WorkItem item, String reason) {
+        mFailed.add(item + " after " + item.getAttempts() + " attempts: " + reason);
+    }
+
+    synchronized void resumed(WorkItem item) {
+        mResumed.add(item.toString());
+    }
+
+    public synchronized List<String> getSucceeded() {
+        return new ArrayList<>(mSucceeded);
+    }
+
+    public synchronized List<String> getFailed() {
+        return new ArrayList<>(mFailed);
+    }
+
+    /**
+     * @return the items an earlier run finished, which were not run again
+     */
+    public synchronized List<String> getResumed() {
+        return new ArrayList<>(mResumed);
+    }
+
+    public synchronized boolean isSuccessful() {
+        return mFailed.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (String line : mSucceeded) {
+            builder.append("OK     ").append(line).append('\n');
+        }
+        for (String line : mResumed) {
+            builder.append("DONE   ").append(line).append(" by an earlier run\n");
+        }
+        for (String line : mFailed) {
+            builder.append("FAILED ").append(line).append('\n');
+        }
+        return builder.append(mSucceeded.size()).append(" succeeded, ").append(mFailed.size()).append(" failed, ")
+                .append(mResumed.size()).append(" resumed").toString();
+    }
+}
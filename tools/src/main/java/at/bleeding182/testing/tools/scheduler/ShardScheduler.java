@@ -0,0 +1,331 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work items of a screenshot run on several devices at once.
+ * <p>
+ * Every device gets its own queue and works through it from the front. A device whose queue is
+ * empty steals from the back of the longest other queue, so a slow device never holds up the
+ * run. A failed item is moved to the queue of another device until it ran out of attempts. A
+ * device that cannot install the apks is dropped and its items are stolen by the others.
+ * <p>
+ * Each item's screenshots are copied into a directory of its own first and merged into the output
+ * tree once the item succeeded. With a {@link ShardJournal} every merged item is recorded, and
+ * items an earlier run already finished are not scheduled again.
+ */
+public class ShardScheduler {
+
+    private final List<Device> mDevices;
+    private final int mMaxAttempts;
+    private final ShardJournal mJournal;
+    private final Map<Device, LinkedBlockingDeque<WorkItem>> mQueues = new LinkedHashMap<>();
+    private final List<Device> mAlive = Collections.synchronizedList(new ArrayList<Device>());
+    private final Object mLock = new Object();
+    private final AtomicInteger mShards = new AtomicInteger();
+    private int mRemaining;
+
+    public ShardScheduler(List<Device> devices, int maxAttempts) {
+        this(devices, maxAttempts, null);
+    }
+
+    /**
+     * @param journal records finished items and skips the ones an earlier run finished, may be null
+     */
+    public ShardScheduler(List<Device> devices, int maxAttempts, ShardJournal journal) {
+        mDevices = devices;
+        mMaxAttempts = maxAttempts;
+        mJournal = journal;
+    }
+
+    /**
+     * Installs the apks on every device, runs all items and merges their screenshots into the output.
+     *
+     * @return the outcome of every item
+     */
+    public ShardResult run(List<WorkItem> all, final Path apk, final Path testApk, final Path output)
+            throws InterruptedException, IOException {
+        final ShardResult result = new ShardResult();
+        Files.createDirectories(output);
+        List<WorkItem> items = new ArrayList<>();
+        for (WorkItem item : all) {
+            if (mJournal != null && mJournal.isDone(item)) {
+                result.resumed(item);
+            } else {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return result;
+        }
+        mQueues.clear();
+        mAlive.clear();
+        for (Device device : mDevices) {
+            mQueues.put(device, new LinkedBlockingDeque<WorkItem>());
+            mAlive.add(device);
+        }
+        synchronized (mLock) {
+            mRemaining = items.size();
+        }
+        for (int i = 0; i < items.size(); i++) {
+            mQueues.get(mDevices.get(i % mDevices.size())).addLast(items.get(i));
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        for (final Device device : mDevices) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(device, apk, testApk, output, result);
+                }
+            }, "Shard-" + device.getSerial());
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        try {
+            Files.deleteIfExists(output.resolve(".shards"));
+        } catch (DirectoryNotEmptyException e) {
+            // leftovers of failed pulls, kept for inspection
+        }
+        return result;
+    }
+
+    private void work(Device device, Path apk, Path testApk, Path output, ShardResult result) {
+        try {
+            device.install(apk, testApk);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Dropping " + device + ": " + e.getMessage());
+            drop(device, result);
+            return;
+        }
+
+        WorkItem item;
+        while ((item = next(device)) != null) {
+            long start = System.nanoTime();
+            try {
+                Path shard = output.resolve(".shards").resolve(device.getSerial() + "-" + mShards.incrementAndGet());
+                Files.createDirectories(shard);
+                device.instrument(item, shard);
+                List<String> files = merge(shard, output);
+                if (mJournal != null) {
+                    mJournal.record(item, device, files);
+                }
+                item.succeeded();
+                result.succeeded(item, device, (System.nanoTime() - start) / 1000000);
+                finish();
+            } catch (IOException | RuntimeException e) {
+                item.failedOn(device.getSerial());
+                System.err.println(e.getMessage());
+                retryOrGiveUp(item, device, result, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private WorkItem next(Device device) {
+        synchronized (mLock) {
+            while (mRemaining > 0) {
+                WorkItem item = takeOwn(device);
+                if (item == null) {
+                    item = steal(device);
+                }
+                if (item != null) {
+                    return item;
+                }
+                // items still running elsewhere might fail and come back
+                try {
+                    mLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Takes the first item of the device's own queue, handing items that already failed on it to
+     * another device that hasn't tried them yet.
+     */
+    private WorkItem takeOwn(Device device) {
+        LinkedBlockingDeque<WorkItem> queue = mQueues.get(device);
+        WorkItem item;
+        while ((item = queue.pollFirst()) != null) {
+            if (!item.hasFailedOn(device.getSerial()) || !hasUntriedDevice(item)) {
+                return item;
+            }
+            queueOfLeastBusy(item, device).addLast(item);
+        }
+        return null;
+    }
+
+    private WorkItem steal(Device thief) {
+        LinkedBlockingDeque<WorkItem> victim = null;
+        for (Map.Entry<Device, LinkedBlockingDeque<WorkItem>> entry : mQueues.entrySet()) {
+            if (entry.getKey() != thief && (victim == null || entry.getValue().size() > victim.size())) {
+                victim = entry.getValue();
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        for (Iterator<WorkItem> iterator = victim.descendingIterator(); iterator.hasNext(); ) {
+            WorkItem item = iterator.next();
+            if (!item.hasFailedOn(thief.getSerial()) || !hasUntriedDevice(item)) {
+                iterator.remove();
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasUntriedDevice(WorkItem item) {
+        synchronized (mAlive) {
+            for (Device device : mAlive) {
+                if (!item.hasFailedOn(device.getSerial())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void retryOrGiveUp(WorkItem item, Device failed, ShardResult result, Exception error) {
+        synchronized (mLock) {
+            if (item.getAttempts() >= mMaxAttempts || mAlive.isEmpty()) {
+                result.failed(item, String.valueOf(error.getMessage()));
+                mRemaining--;
+            } else {
+                queueOfLeastBusy(item, failed).addLast(item);
+            }
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the shortest queue of the devices that haven't tried the item yet, else the shortest
+     * queue of any other device; the excluded device only gets it back if it is the last one alive
+     */
+    private LinkedBlockingDeque<WorkItem> queueOfLeastBusy(WorkItem item, Device exclude) {
+        LinkedBlockingDeque<WorkItem> untried = null;
+        LinkedBlockingDeque<WorkItem> other = null;
+        synchronized (mAlive) {
+            for (Device device : mAlive) {
+                if (device == exclude) {
+                    continue;
+                }
+                LinkedBlockingDeque<WorkItem> queue = mQueues.get(device);
+                if (other == null || queue.size() < other.size()) {
+                    other = queue;
+                }
+                if (!item.hasFailedOn(device.getSerial()) && (untried == null || queue.size() < untried.size())) {
+                    untried = queue;
+                }
+            }
+        }
+        if (untried != null) {
+            return untried;
+        }
+        return other != null ? other : mQueues.get(exclude);
+    }
+
+    private void drop(Device device, ShardResult result) {
+        synchronized (mLock) {
+            mAlive.remove(device);
+            LinkedBlockingDeque<WorkItem> queue = mQueues.get(device);
+            if (mAlive.isEmpty()) {
+                for (WorkItem item : queue) {
+                    result.failed(item, "no device left");
+                    mRemaining--;
+                }
+                queue.clear();
+            }
+            mLock.notifyAll();
+        }
+    }
+
+    private void finish() {
+        synchronized (mLock) {
+            mRemaining--;
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Moves every file of a pulled shard into the output tree, replacing older files.
+     *
+     * @return the moved files, relative to the output tree
+     */
+    private static List<String> merge(final Path shard, final Path output) throws IOException {
+        final List<String> merged = new ArrayList<>();
+        Files.walkFileTree(shard, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relative = shard.relativize(file).toString().replace('\\', '/');
+                Path target = output.resolve(relative);
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                merged.add(relative);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                    if (!children.iterator().hasNext()) {
+                        Files.delete(dir);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return merged;
+    }
+}
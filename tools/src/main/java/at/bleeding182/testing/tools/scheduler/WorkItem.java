@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One cell of the locale &times; scenario matrix, run as a single instrumentation on one device.
+ */
+public final class WorkItem {
+
+    private final String mLanguage;
+    private final String mScenario;
+    private final Set<String> mFailedOn = new HashSet<>();
+    private int mAttempts;
+
+    /**
+     * @param language the language passed as {@code -e locales}
+     * @param scenario the test class to run
+     */
+    public WorkItem(String language, String scenario) {
+        mLanguage = language;
+        mScenario = scenario;
+    }
+
+    public String getLanguage() {
+        return mLanguage;
+    }
+
+    public String getScenario() {
+        return mScenario;
+    }
+
+    public synchronized int getAttempts() {
+        return mAttempts;
+    }
+
+    synchronized void failedOn(String serial) {
+        mAttempts++;
+        mFailedOn.add(serial);
+    }
+
+    synchronized void succeeded() {
+        mAttempts++;
+    }
+
+    synchronized boolean hasFailedOn(String serial) {
+        return mFailedOn.contains(serial);
+    }
+
+    @Override
+    public String toString() {
+        return mScenario + "[" + mLanguage + "]";
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.statusbar;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The clock and battery icon drawn into the status bar, rasterized once per screen density.
+ * <p>
+ * Both are kept as coverage masks, so compositing them is a blend per pixel without any text
+ * layout or shape rendering.
+ */
+public final class StatusBarAssets {
+
+    public static final String CLOCK = "10:00";
+
+    private static final ConcurrentMap<Float, StatusBarAssets> sCache = new ConcurrentHashMap<>();
+
+    /**
+     * Coverage of a rasterized asset, one byte per pixel row by row.
+     */
+    static final class Glyph {
+        final int mWidth;
+        final int mHeight;
+        final byte[] mAlpha;
+
+        Glyph(BufferedImage image) {
+            mWidth = image.getWidth();
+            mHeight = image.getHeight();
+            mAlpha = new byte[mWidth * mHeight];
+            int[] pixels = image.getRGB(0, 0, mWidth, mHeight, null, 0, mWidth);
+            for (int i = 0; i < pixels.length; i++) {
+                mAlpha[i] = (byte) (pixels[i] >>> 24);
+            }
+        }
+    }
+
+    private final float mDensity;
+    private final Glyph mClock;
+    private final Glyph mBattery;
+
+    private StatusBarAssets(float density) {
+        mDensity = density;
+        mClock = clock(density);
+        mBattery = battery(density);
+    }
+
+    /**
+     * @param density the display density of the device, 1 for mdpi
+     */
+    public static StatusBarAssets forDensity(float density) {
+        StatusBarAssets assets = sCache.get(density);
+        if (assets == null) {
+            assets = new StatusBarAssets(density);
+            StatusBarAssets previous = sCache.putIfAbsent(density, assets);
+            if (previous != null) {
+                assets = previous;
+            }
+        }
+        return assets;
+    }
+
+    int dp(float dp) {
+        return Math.round(dp * mDensity);
+    }
+
+    Glyph getClock() {
+        return mClock;
+    }
+
+    Glyph getBattery() {
+        return mBattery;
+    }
+
+    private static Glyph clock(float density) {
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(14 * density);
+        FontRenderContext context = new FontRenderContext(null, true, true);
+        // crop to the ink, so the glyph can be centered in the status bar like on the device
+        Rectangle bounds = font.createGlyphVector(context, CLOCK).getPixelBounds(context, 0, 0);
+        BufferedImage image = new BufferedImage(Math.max(1, bounds.width), Math.max(1, bounds.height),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g.setColor(Color.WHITE);
+        g.setFont(font);
+        g.drawString(CLOCK, -bounds.x, -bounds.y);
+        g.dispose();
+        return new Glyph(image);
+    }
+
+    private static Glyph battery(float density) {
+        float width = 9 * density;
+        float capWidth = 4 * density;
+        float capHeight = 2 * density;
+        Area shape = new Area(new Rectangle2D.Float(0, capHeight, width, 13 * density));
+        shape.add(new Area(new Rectangle2D.Float((width - capWidth) / 2, 0, capWidth, capHeight)));
+        return new Glyph(fill(shape));
+    }
+
+    private static BufferedImage fill(Shape shape) {
+        Rectangle bounds = shape.getBounds();
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+        return image;
+    }
+}
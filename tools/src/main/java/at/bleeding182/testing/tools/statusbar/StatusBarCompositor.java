@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.statusbar;
+
+import java.util.Arrays;
+
+/**
+ * Replaces the status bar of a screenshot with a fixed one, so the time, notifications and
+ * battery level of the device don't show up as differences.
+ * <p>
+ * The bar keeps the color of the original, sampled at its top right, and gets the clock
+ * {@value StatusBarAssets#CLOCK} and a full battery on the right in white.
+ */
+public class StatusBarCompositor {
+
+    private final StatusBarAssets mAssets;
+    private final int mHeight;
+
+    /**
+     * @param height the height of the status bar in pixels
+     */
+    public StatusBarCompositor(StatusBarAssets assets, int height) {
+        mAssets = assets;
+        mHeight = height;
+    }
+
+    /**
+     * Paints the status bar into the image in place.
+     *
+     * @param pixels ARGB pixels of the image, row by row
+     */
+    public void compose(int[] pixels, int width, int height) {
+        int barHeight = Math.min(mHeight, height);
+        if (barHeight <= 0 || width < 2) {
+            return;
+        }
+        int background = pixels[Math.min(2, barHeight - 1) * width + width - 2] | 0xff000000;
+        Arrays.fill(pixels, 0, barHeight * width, background);
+
+        int margin = mAssets.dp(8);
+        StatusBarAssets.Glyph clock = mAssets.getClock();
+        int clockX = width - margin - clock.mWidth;
+        draw(pixels, width, barHeight, clock, clockX, (barHeight - clock.mHeight) / 2);
+        StatusBarAssets.Glyph battery = mAssets.getBattery();
+        draw(pixels, width, barHeight, battery, clockX - margin - battery.mWidth, (barHeight - battery.mHeight) / 2);
+    }
+
+    private static void draw(int[] pixels, int width, int barHeight, StatusBarAssets.Glyph glyph, int left, int top) {
+        for (int y = Math.max(0, -top); y < glyph.mHeight && top + y < barHeight; y++) {
+            int row = (top + y) * width;
+            for (int x = Math.max(0, -left); x < glyph.mWidth && left + x < width; x++) {
+                int alpha = glyph.mAlpha[y * glyph.mWidth + x] & 0xff;
+                if (alpha != 0) {
+                    pixels[row + left + x] = blendWhite(pixels[row + left + x], alpha);
+                }
+            }
+        }
+    }
+
+    private static int blendWhite(int pixel, int alpha) {
+        int r = (pixel >> 16) & 0xff;
+        int g = (pixel >> 8) & 0xff;
+        int b = pixel & 0xff;
+        r += ((255 - r) * alpha + 127) / 255;
+        g += ((255 - g) * alpha + 127) / 255;
+        b += ((255 - b) * alpha + 127) / 255;
+        return (pixel & 0xff000000) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.statusbar;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+import at.bleeding182.testing.tools.image.PngWriter;
+
+/**
+ * Command line entry point of the status bar normalization.
+ * <p>
+ * {@code StatusBarMain <screenshots dir> [--density <d>] [--height <px>] [--threads <n>] [--skip <prefix>]}
+ * <p>
+ * Replaces the status bar of every PNG below the directory with {@link StatusBarCompositor}. The
+ * density and status bar height default to the {@code status-bar.properties} the screenshot test
+ * writes next to the screenshots. Files starting with {@code layout_} are rendered without system
+ * bars and skipped. Every image is decoded once, composited in place and encoded again, with a
+ * bounded number of images in flight per thread.
+ */
+public final class StatusBarMain {
+
+    private StatusBarMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: StatusBarMain <screenshots dir> [--density <d>] [--height <px>] "
+                    + "[--threads <n>] [--skip <prefix>]");
+            System.exit(2);
+        }
+        final Path root = Paths.get(args[0]);
+        if (!Files.isDirectory(root)) {
+            System.out.println("Nothing to normalize in " + root);
+            return;
+        }
+        Properties info = new Properties();
+        Path infoFile = root.resolve("status-bar.properties");
+        if (Files.exists(infoFile)) {
+            try (InputStream in = Files.newInputStream(infoFile)) {
+                info.load(in);
+            }
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<String> skipped = new ArrayList<>();
+        skipped.add("layout_");
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--density":
+                    info.setProperty("density", args[++i]);
+                    break;
+                case "--height":
+                    info.setProperty("height", args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--skip":
+                    skipped.add(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (info.getProperty("density") == null || info.getProperty("height") == null) {
+            System.err.println("No " + infoFile + ", pass --density and --height");
+            System.exit(2);
+        }
+        final StatusBarCompositor compositor = new StatusBarCompositor(
+                StatusBarAssets.forDensity(Float.parseFloat(info.getProperty("density"))),
+                Integer.parseInt(info.getProperty("height")));
+
+        // the walk encodes images itself while the queue is full, which bounds the images in memory
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        final List<Future<Void>> jobs = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString();
+                    if (!name.toLowerCase().endsWith(".png")) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    for (String prefix : skipped) {
+                        if (name.startsWith(prefix)) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    }
+                    jobs.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            normalize(file, compositor);
+                            return null;
+                        }
+                    }));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (Future<Void> job : jobs) {
+                job.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println("Normalized " + jobs.size() + " screenshots in "
+                + (System.nanoTime() - start) / 1000000 + "ms on " + threads + " threads");
+    }
+
+    static void normalize(Path file, StatusBarCompositor compositor) throws IOException {
+        BufferedImage image = ImageFiles.read(file);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getType() == BufferedImage.TYPE_INT_ARGB
+                ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : ImageFiles.pixels(image);
+        compositor.compose(pixels, width, height);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            PngWriter writer = new PngWriter(out, width, height);
+            for (int y = 0; y < height; y++) {
+                writer.writeRow(pixels, y * width);
+            }
+            writer.close();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
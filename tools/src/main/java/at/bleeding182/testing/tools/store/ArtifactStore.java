@@ -0,0 +1,566 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.store;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import at.bleeding182.testing.tools.image.ImageFiles;
+import at.bleeding182.testing.tools.image.PngWriter;
+import at.bleeding182.testing.tools.image.Tiles;
+
+/**
+ * Content-addressed store for screenshot runs.
+ * <p>
+ * PNGs are cut into tiles and every distinct tile is stored once, compressed. An image is a small
+ * manifest listing its tiles, so an image that only differs from an earlier run or a sibling
+ * locale in a few text regions only adds the tiles of those regions, and identical images share
+ * one manifest. Other files are stored as they are, once per distinct content. A run maps the
+ * relative paths of its files to these objects.
+ * <p>
+ * The objects a run adds are appended to a new pack file with an index of their offsets, so small
+ * tiles don't each take up a file system block. Indexed packs are never written again, storing a
+ * run a second time replaces its file list and adds a pack of its own. Reading an image decodes one row of tiles at
+ * a time and streams it out as PNG, so only the tiles of that image are touched. Images come back
+ * pixel-identical, not byte-identical to the original encoding.
+ * <p>
+ * {@link #prune(int)} drops all but the newest runs and rewrites the packs that hold objects none of
+ * the remaining runs refer to, so the store doesn't grow with every build.
+ */
+public class ArtifactStore {
+
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private static final String IMAGE = "png:";
+    private static final String BLOB = "blob:";
+
+    private static class Location {
+        final Path mPack;
+        final long mOffset;
+        final int mLength;
+        final boolean mCompressed;
+
+        Location(Path pack, long offset, int length, boolean compressed) {
+            mPack = pack;
+            mOffset = offset;
+            mLength = length;
+            mCompressed = compressed;
+        }
+    }
+
+    private final Path mRoot;
+    private final int mTileSize;
+    private final Map<String, Location> mObjects = new HashMap<>();
+    private final AtomicLong mStoredObjects = new AtomicLong();
+    private final AtomicLong mReusedObjects = new AtomicLong();
+    private final AtomicLong mStoredBytes = new AtomicLong();
+    private final AtomicLong mInputBytes = new AtomicLong();
+
+    private FileChannel mPack;
+    private Path mPackFile;
+    private StringBuilder mPackIndex;
+
+    public ArtifactStore(Path root, int tileSize) throws IOException {
+        mRoot = root;
+        mTileSize = tileSize;
+        readIndexes();
+    }
+
+    private void readIndexes() throws IOException {
+        Path packs = mRoot.resolve("packs");
+        if (!Files.isDirectory(packs)) {
+            return;
+        }
+        try (DirectoryStream<Path> indexes = Files.newDirectoryStream(packs, "*.idx")) {
+            for (Path index : indexes) {
+                String name = index.getFileName().toString();
+                Path pack = packs.resolve(name.substring(0, name.length() - 4) + ".pack");
+                for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ");
+                    mObjects.put(parts[0], new Location(pack, Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                            "z".equals(parts[3])));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores every file below the directory as a run.
+     *
+     * @param executor runs the files in parallel
+     * @return the number of files stored
+     */
+    public int putRun(String run, final Path directory, ExecutorService executor) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Path packs = mRoot.resolve("packs");
+        Files.createDirectories(packs);
+        String pack = packName(packs, run);
+        synchronized (this) {
+            mPackFile = packs.resolve(pack + ".pack");
+            // a pack without an index is left over from a failed run and nothing refers to it
+            mPack = FileChannel.open(mPackFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            mPackIndex = new StringBuilder();
+        }
+        Map<String, Future<String>> refs = new TreeMap<>();
+        try {
+            for (final Path file : files) {
+                refs.put(directory.relativize(file).toString().replace('\\', '/'), executor.submit(
+                        new Callable<String>() {
+                            @Override
+                            public String call() throws IOException {
+                                return put(file);
+                            }
+                        }));
+            }
+            StringBuilder index = new StringBuilder();
+            for (Map.Entry<String, Future<String>> entry : refs.entrySet()) {
+                index.append(entry.getKey()).append('\t').append(get(entry.getValue())).append('\n');
+            }
+            synchronized (this) {
+                // the pack only counts once its index is written
+                mPack.force(false);
+                writeAtomically(packs.resolve(pack + ".idx"), mPackIndex.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            Path runFile = runFile(run);
+            Files.createDirectories(runFile.getParent());
+            writeAtomically(runFile, index.toString().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            synchronized (this) {
+                mPack.close();
+                mPack = null;
+            }
+        }
+        return refs.size();
+    }
+
+    /**
+     * @return the name of a pack without an index, so storing a run again never overwrites objects
+     * that are already indexed
+     */
+    private static String packName(Path packs, String run) {
+        String name = run;
+        for (int i = 2; Files.exists(packs.resolve(name + ".idx")); i++) {
+            name = run + "-" + i;
+        }
+        return name;
+    }
+
+    /**
+     * Deletes all but the newest runs and the objects only the deleted runs referred to. Packs
+     * without any live object are deleted, packs with some are rewritten with only those.
+     *
+     * @param keep the number of runs to keep, by the time they were stored
+     * @return the number of deleted runs
+     */
+    public synchronized int prune(int keep) throws IOException {
+        if (mPack != null) {
+            throw new IllegalStateException("Can't prune while a run is stored");
+        }
+        List<Path> runs = runs();
+        List<Path> deleted = runs.subList(0, Math.max(0, runs.size() - keep));
+        Set<String> live = new HashSet<>();
+        for (Path run : runs.subList(deleted.size(), runs.size())) {
+            String name = run.getFileName().toString();
+            for (String ref : readRun(name.substring(0, name.length() - 4)).values()) {
+                mark(ref, live);
+            }
+        }
+        int count = deleted.size();
+        for (Path run : new ArrayList<>(deleted)) {
+            Files.delete(run);
+        }
+
+        Path packs = mRoot.resolve("packs");
+        if (!Files.isDirectory(packs)) {
+            return count;
+        }
+        Map<Path, List<String>> byPack = new HashMap<>();
+        for (Map.Entry<String, Location> object : mObjects.entrySet()) {
+            List<String> hashes = byPack.get(object.getValue().mPack);
+            if (hashes == null) {
+                hashes = new ArrayList<>();
+                byPack.put(object.getValue().mPack, hashes);
+            }
+            hashes.add(object.getKey());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(packs, "*.pack")) {
+            for (Path pack : files) {
+                if (!byPack.containsKey(pack)) {
+                    // left over from a failed run, or indexed but empty
+                    String name = pack.getFileName().toString();
+                    Files.deleteIfExists(packs.resolve(name.substring(0, name.length() - 5) + ".idx"));
+                    Files.delete(pack);
+                }
+            }
+        }
+        for (Map.Entry<Path, List<String>> pack : byPack.entrySet()) {
+            List<String> kept = new ArrayList<>();
+            for (String hash : pack.getValue()) {
+                if (live.contains(hash)) {
+                    kept.add(hash);
+                }
+            }
+            if (kept.size() < pack.getValue().size()) {
+                repack(pack.getKey(), kept);
+            }
+        }
+        mObjects.clear();
+        readIndexes();
+        return count;
+    }
+
+    /**
+     * @return the run files, oldest first
+     */
+    private List<Path> runs() throws IOException {
+        List<Path> runs = new ArrayList<>();
+        Path directory = mRoot.resolve("runs");
+        if (!Files.isDirectory(directory)) {
+            return runs;
+        }
+        final Map<Path, Long> modified = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.txt")) {
+            for (Path run : files) {
+                runs.add(run);
+                modified.put(run, Files.getLastModifiedTime(run).toMillis());
+            }
+        }
+        Collections.sort(runs, new Comparator<Path>() {
+            @Override
+            public int compare(Path lhs, Path rhs) {
+                int order = Long.compare(modified.get(lhs), modified.get(rhs));
+                return order != 0 ? order : lhs.compareTo(rhs);
+            }
+        });
+        return runs;
+    }
+
+    private void mark(String ref, Set<String> live) throws IOException {
+        if (ref.startsWith(BLOB)) {
+            live.add(ref.substring(BLOB.length()));
+            return;
+        }
+        if (!ref.startsWith(IMAGE)) {
+            throw new IOException("Unknown reference " + ref);
+        }
+        String manifest = ref.substring(IMAGE.length());
+        if (live.add(manifest)) {
+            String[] lines = new String(readObject(manifest), StandardCharsets.UTF_8).split("\n");
+            live.addAll(Arrays.asList(lines).subList(1, lines.length));
+        }
+    }
+
+    /**
+     * Copies the objects to a pack of their own and deletes the old one. The new index is written
+     * before the old one is deleted, so the objects stay reachable if this is interrupted.
+     */
+    private void repack(Path pack, List<String> hashes) throws IOException {
+        Path packs = pack.getParent();
+        String name = pack.getFileName().toString();
+        name = name.substring(0, name.length() - 5);
+        Path oldIndex = packs.resolve(name + ".idx");
+        if (!hashes.isEmpty()) {
+            String repacked = packName(packs, name);
+            StringBuilder index = new StringBuilder();
+            try (FileChannel out = FileChannel.open(packs.resolve(repacked + ".pack"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel in = FileChannel.open(pack, StandardOpenOption.READ)) {
+                for (String hash : hashes) {
+                    Location location = mObjects.get(hash);
+                    long offset = out.size();
+                    long copied = 0;
+                    while (copied < location.mLength) {
+                        copied += in.transferTo(location.mOffset + copied, location.mLength - copied, out);
+                    }
+                    index.append(hash).append(' ').append(offset).append(' ').append(location.mLength)
+                            .append(location.mCompressed ? " z\n" : " -\n");
+                }
+                out.force(false);
+            }
+            writeAtomically(packs.resolve(repacked + ".idx"), index.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.delete(oldIndex);
+        Files.delete(pack);
+    }
+
+    private static String get(Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private String put(Path file) throws IOException {
+        mInputBytes.addAndGet(Files.size(file));
+        if (!file.getFileName().toString().toLowerCase().endsWith(".png")) {
+            return BLOB + writeObject(Files.readAllBytes(file), false);
+        }
+        BufferedImage image = ImageFiles.read(file);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ImageFiles.pixels(image);
+
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(width).append(' ').append(height).append(' ').append(mTileSize).append('\n');
+        for (int y = 0; y < height; y += mTileSize) {
+            for (int x = 0; x < width; x += mTileSize) {
+                int tileWidth = Math.min(mTileSize, width - x);
+                int tileHeight = Math.min(mTileSize, height - y);
+                ByteBuffer tile = ByteBuffer.allocate(tileWidth * tileHeight * 4);
+                for (int row = y; row < y + tileHeight; row++) {
+                    for (int column = x; column < x + tileWidth; column++) {
+                        tile.putInt(pixels[row * width + column]);
+                    }
+                }
+                manifest.append(writeObject(tile.array(), true)).append('\n');
+            }
+        }
+        return IMAGE + writeObject(manifest.toString().getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Writes a file of a run to the stream.
+     */
+    public void get(String run, String path, OutputStream out) throws IOException {
+        String ref = readRun(run).get(path);
+        if (ref == null) {
+            throw new IOException(path + " is not part of run " + run);
+        }
+        read(ref, out);
+    }
+
+    /**
+     * Writes every file of a run below the directory.
+     */
+    public void checkout(String run, Path directory) throws IOException {
+        for (Map.Entry<String, String> entry : readRun(run).entrySet()) {
+            Path target = directory.resolve(entry.getKey());
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+                read(entry.getValue(), out);
+            }
+        }
+    }
+
+    /**
+     * @return the paths of the run and the objects they refer to
+     */
+    public Map<String, String> readRun(String run) throws IOException {
+        Map<String, String> refs = new TreeMap<>();
+        for (String line : Files.readAllLines(runFile(run), StandardCharsets.UTF_8)) {
+            int tab = line.lastIndexOf('\t');
+            if (tab > 0) {
+                refs.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Writes the object a reference points to.
+     */
+    public void read(String ref, OutputStream out) throws IOException {
+        if (ref.startsWith(BLOB)) {
+            out.write(readObject(ref.substring(BLOB.length())));
+            return;
+        }
+        if (!ref.startsWith(IMAGE)) {
+            throw new IOException("Unknown reference " + ref);
+        }
+        String[] manifest = new String(readObject(ref.substring(IMAGE.length())), StandardCharsets.UTF_8).split("\n");
+        String[] header = manifest[0].split(" ");
+        int width = Integer.parseInt(header[0]);
+        int height = Integer.parseInt(header[1]);
+        int tileSize = Integer.parseInt(header[2]);
+        int columns = Tiles.count(width, tileSize);
+
+        PngWriter writer = new PngWriter(out, width, height);
+        int[] band = new int[width * tileSize];
+        int tile = 1;
+        for (int y = 0; y < height; y += tileSize) {
+            int bandHeight = Math.min(tileSize, height - y);
+            for (int column = 0; column < columns; column++) {
+                int x = column * tileSize;
+                int tileWidth = Math.min(tileSize, width - x);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(readObject(manifest[tile++])));
+                for (int row = 0; row < bandHeight; row++) {
+                    for (int i = 0; i < tileWidth; i++) {
+                        band[row * width + x + i] = in.readInt();
+                    }
+                }
+            }
+            for (int row = 0; row < bandHeight; row++) {
+                writer.writeRow(band, row * width);
+            }
+        }
+        writer.close();
+    }
+
+    private byte[] readObject(String hash) throws IOException {
+        Location location;
+        synchronized (this) {
+            location = mObjects.get(hash);
+        }
+        if (location == null) {
+            throw new IOException("Missing object " + hash);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(location.mLength);
+        try (FileChannel pack = FileChannel.open(location.mPack, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (pack.read(buffer, location.mOffset + buffer.position()) < 0) {
+                    throw new IOException("Truncated pack " + location.mPack);
+                }
+            }
+        }
+        if (!location.mCompressed) {
+            return buffer.array();
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream(location.mLength * 4);
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(buffer.array()))) {
+            byte[] chunk = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                content.write(chunk, 0, read);
+            }
+        }
+        return content.toByteArray();
+    }
+
+    private String writeObject(byte[] content, boolean compress) throws IOException {
+        String hash = sha1(content);
+        synchronized (this) {
+            if (mObjects.containsKey(hash)) {
+                mReusedObjects.incrementAndGet();
+                return hash;
+            }
+        }
+        byte[] data = content;
+        if (compress) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                out.write(content);
+            }
+            data = compressed.toByteArray();
+        }
+        synchronized (this) {
+            // another thread may have stored the same content meanwhile
+            if (mObjects.containsKey(hash)) {
+                mReusedObjects.incrementAndGet();
+                return hash;
+            }
+            long offset = mPack.size();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                mPack.write(buffer, offset + buffer.position());
+            }
+            mObjects.put(hash, new Location(mPackFile, offset, data.length, compress));
+            mPackIndex.append(hash).append(' ').append(offset).append(' ').append(data.length)
+                    .append(compress ? " z\n" : " -\n");
+        }
+        mStoredObjects.incrementAndGet();
+        mStoredBytes.addAndGet(data.length);
+        return hash;
+    }
+
+    private static void writeAtomically(Path file, byte[] data) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path runFile(String run) {
+        return mRoot.resolve("runs").resolve(run + ".txt");
+    }
+
+    private static String sha1(byte[] content) {
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(content)) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the counters of everything stored through this instance
+     */
+    @Override
+    public String toString() {
+        return "read " + mInputBytes.get() + " bytes, stored " + mStoredObjects.get() + " new objects with "
+                + mStoredBytes.get() + " bytes, reused " + mReusedObjects.get() + " objects";
+    }
+}
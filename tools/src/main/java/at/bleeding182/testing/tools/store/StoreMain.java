@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.store;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Command line entry point of the artifact store.
+ * <p>
+ * {@code StoreMain put <store> <run> <screenshots dir>} stores a run,
+ * {@code StoreMain get <store> <run> <path> <file>} reads a single file of a run,
+ * {@code StoreMain checkout <store> <run> <dir>} writes a whole run and
+ * {@code StoreMain prune <store> <keep>} deletes all but the newest runs.
+ */
+public final class StoreMain {
+
+    private StoreMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || (!"prune".equals(args[0]) && args.length < 4)
+                || ("get".equals(args[0]) && args.length < 5)) {
+            System.err.println("Usage: StoreMain put <store> <run> <dir> | get <store> <run> <path> <file> "
+                    + "| checkout <store> <run> <dir> | prune <store> <keep>");
+            System.exit(2);
+        }
+        ArtifactStore store = new ArtifactStore(Paths.get(args[1]), ArtifactStore.DEFAULT_TILE_SIZE);
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "put":
+                ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                try {
+                    int files = store.putRun(args[2], Paths.get(args[3]), executor);
+                    System.out.println("Stored " + files + " files as run " + args[2]);
+                } finally {
+                    executor.shutdown();
+                }
+                break;
+            case "get":
+                Path target = Paths.get(args[4]);
+                if (target.getParent() != null) {
+                    Files.createDirectories(target.getParent());
+                }
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+                    store.get(args[2], args[3], out);
+                }
+                break;
+            case "checkout":
+                store.checkout(args[2], Paths.get(args[3]));
+                break;
+            case "prune":
+                System.out.println("Deleted " + store.prune(Integer.parseInt(args[2])) + " runs");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+        System.out.println(store);
+        System.out.println("Took " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+}
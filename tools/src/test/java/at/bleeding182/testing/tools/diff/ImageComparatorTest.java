@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.diff;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImageComparatorTest {
+
+    private final ForkJoinPool mPool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    private static BufferedImage image(int width, int height, int color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, color);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void identicalImages() {
+        ImageComparator comparator = new ImageComparator(mPool, 16, 0, false, new Mask());
+        ImageDiff diff = comparator.compare(image(100, 70, 0xffffffff), image(100, 70, 0xffffffff));
+        assertTrue(diff.isIdentical());
+        assertEquals(7 * 5, diff.getTiles());
+    }
+
+    @Test
+    public void changedPixelsAreCountedPerTile() {
+        BufferedImage current = image(100, 70, 0xffffffff);
+        current.setRGB(3, 3, 0xff000000);
+        current.setRGB(99, 69, 0xff000000);
+        ImageComparator comparator = new ImageComparator(mPool, 16, 0, false, new Mask());
+        ImageDiff diff = comparator.compare(image(100, 70, 0xffffffff), current);
+        assertEquals(2, diff.getDifferentPixels());
+        assertEquals(2, diff.getChangedTiles());
+    }
+
+    @Test
+    public void toleranceIgnoresSmallDifferences() {
+        ImageComparator comparator = new ImageComparator(mPool, 16, 8, false, new Mask());
+        assertTrue(comparator.compare(image(20, 20, 0xff808080), image(20, 20, 0xff848480)).isIdentical());
+    }
+
+    @Test
+    public void maskedRegionsAreIgnored() {
+        BufferedImage current = image(64, 64, 0xffffffff);
+        current.setRGB(10, 2, 0xff000000);
+        current.setRGB(40, 40, 0xff000000);
+        ImageComparator comparator = new ImageComparator(mPool, 16, 0, false,
+                new Mask().top(5).add("32,32,16,16"));
+        assertTrue(comparator.compare(image(64, 64, 0xffffffff), current).isIdentical());
+    }
+
+    @Test
+    public void antiAliasedEdgesAreIgnored() {
+        BufferedImage baseline = image(20, 20, 0xffffffff);
+        BufferedImage current = image(20, 20, 0xffffffff);
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 10; x++) {
+                baseline.setRGB(x, y, 0xff000000);
+                current.setRGB(x, y, 0xff000000);
+            }
+            // the same edge rendered with a different sub-pixel offset
+            baseline.setRGB(10, y, 0xff404040);
+            current.setRGB(10, y, 0xffc0c0c0);
+        }
+        assertTrue(new ImageComparator(mPool, 8, 0, true, new Mask()).compare(baseline, current).isIdentical());
+        assertEquals(20, new ImageComparator(mPool, 8, 0, false, new Mask()).compare(baseline, current)
+                .getDifferentPixels());
+    }
+
+    @Test
+    public void movedLinesAreReported() {
+        BufferedImage baseline = image(20, 20, 0xffffffff);
+        BufferedImage current = image(20, 20, 0xffffffff);
+        for (int y = 0; y < 20; y++) {
+            baseline.setRGB(10, y, 0xff000000);
+            current.setRGB(11, y, 0xff000000);
+        }
+        assertEquals(40, new ImageComparator(mPool, 8, 0, true, new Mask()).compare(baseline, current)
+                .getDifferentPixels());
+    }
+
+    @Test
+    public void differentSizesAreNotCompared() {
+        ImageComparator comparator = new ImageComparator(mPool, 16, 0, false, new Mask());
+        assertNull(comparator.compare(image(20, 20, 0), image(20, 21, 0)));
+    }
+}
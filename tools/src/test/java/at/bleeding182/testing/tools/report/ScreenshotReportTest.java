@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.report;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScreenshotReportTest {
+
+    private Path mTemp;
+
+    @Before
+    public void setUp() throws IOException {
+        mTemp = Files.createTempDirectory("screenshot-report");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walkFileTree(mTemp, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void write(String path, int color) throws IOException {
+        BufferedImage image = new BufferedImage(200, 400, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, color + x);
+            }
+        }
+        Path file = mTemp.resolve("screenshots").resolve(path);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "png", file.toFile());
+    }
+
+    private ScreenshotReport run() throws IOException {
+        ScreenshotReport report = new ScreenshotReport(new Thumbnailer(50), 2);
+        report.run(mTemp.resolve("screenshots"), mTemp.resolve("report"));
+        return report;
+    }
+
+    private static int count(Path directory) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void gridHasEveryLocaleAndScreen() throws IOException {
+        write("de/screenshot.png", 0x102030);
+        write("en/screenshot.png", 0x203040);
+        write("en/zero.png", 0x304050);
+        ScreenshotReport report = run();
+        assertEquals(3, report.getImages());
+
+        String html = new String(Files.readAllBytes(mTemp.resolve("report/index.html")), StandardCharsets.UTF_8);
+        assertTrue(html.contains("sheets/de.png"));
+        assertTrue(html.contains("sheets/en.png"));
+        assertTrue(html.contains("<th>zero.png</th>"));
+        // the report links to its own copies, so it can be published without the screenshots
+        assertTrue(html.contains("href=\"images/"));
+        assertEquals(3, count(mTemp.resolve("report/images")));
+
+        BufferedImage sheet = ImageIO.read(mTemp.resolve("report/sheets/en.png").toFile());
+        assertTrue(sheet.getWidth() > 2 * 50);
+        BufferedImage thumbnail;
+        try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(mTemp.resolve("report/thumbs"), "*.png")) {
+            thumbnail = ImageIO.read(thumbnails.iterator().next().toFile());
+        }
+        assertEquals(50, thumbnail.getWidth());
+        assertEquals(100, thumbnail.getHeight());
+    }
+
+    @Test
+    public void rerunsOnlyScaleNewOrChangedScreenshots() throws IOException {
+        write("de/screenshot.png", 0x102030);
+        write("en/screenshot.png", 0x203040);
+        // same content as de
+        write("fr/screenshot.png", 0x102030);
+        assertEquals(2, run().getScaled());
+
+        assertEquals(0, run().getScaled());
+
+        write("en/screenshot.png", 0x405060);
+        write("it/screenshot.png", 0x506070);
+        assertEquals(2, run().getScaled());
+        // de and fr share one copy, the old en copy is gone
+        assertEquals(3, count(mTemp.resolve("report/images")));
+    }
+}
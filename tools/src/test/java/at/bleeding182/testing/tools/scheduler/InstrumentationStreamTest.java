@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class InstrumentationStreamTest {
+
+    @Test
+    public void parsesStatusBlocksAsTheyArrive() {
+        final List<String> received = new ArrayList<>();
+        InstrumentationStream stream = new InstrumentationStream(new InstrumentationStream.Listener() {
+            @Override
+            public void onStatus(int code, Map<String, String> values) {
+                received.add(code + " " + values.get("screenshot") + " " + values.get("stack"));
+            }
+        });
+
+        stream.onLine("INSTRUMENTATION_STATUS: screenshot=/sdcard/test/de/screenshot.png");
+        stream.onLine("INSTRUMENTATION_STATUS_CODE: 2");
+        assertEquals(1, received.size());
+
+        stream.onLine("INSTRUMENTATION_STATUS: stack=java.lang.AssertionError");
+        stream.onLine("\tat Screenshots.makeScreenshot");
+        stream.onLine("INSTRUMENTATION_STATUS_CODE: -2");
+        stream.onLine("INSTRUMENTATION_CODE: -1");
+
+        assertEquals("2 /sdcard/test/de/screenshot.png null", received.get(0));
+        assertEquals("-2 null java.lang.AssertionError\n\tat Screenshots.makeScreenshot", received.get(1));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.scheduler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardSchedulerTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static List<WorkItem> items(String... languages) {
+        List<WorkItem> items = new ArrayList<>();
+        for (String language : languages) {
+            items.add(new WorkItem(language, "Screenshots"));
+        }
+        return items;
+    }
+
+    private FakeDevice device(String serial, long latency) throws IOException {
+        return new FakeDevice(serial, mFolder.newFolder(serial).toPath(), 0, latency);
+    }
+
+    private ShardResult run(List<Device> devices, List<WorkItem> items, Path output) throws Exception {
+        return new ShardScheduler(devices, 3).run(items, output.resolve("app.apk"), output.resolve("test.apk"), output);
+    }
+
+    @Test
+    public void mergesAllItemsIntoOneTree() throws Exception {
+        Path output = mFolder.newFolder("out").toPath();
+        ShardResult result = run(Arrays.<Device>asList(device("a", 5), device("b", 5)), items("en", "de", "fr", "it"), output);
+
+        assertTrue(result.toString(), result.isSuccessful());
+        for (String language : Arrays.asList("en", "de", "fr", "it")) {
+            assertTrue(language, Files.exists(output.resolve(language).resolve("Screenshots.png")));
+        }
+        assertFalse(Files.exists(output.resolve(".shards")));
+    }
+
+    @Test
+    public void fastDevicesStealFromSlowOnes() throws Exception {
+        FakeDevice slow = device("slow", 500);
+        FakeDevice fast = device("fast", 5);
+        ShardResult result = run(Arrays.<Device>asList(slow, fast), items("a", "b", "c", "d", "e", "f", "g", "h"),
+                mFolder.newFolder("out").toPath());
+
+        assertTrue(result.toString(), result.isSuccessful());
+        // exact counts depend on thread timing, only the split matters
+        assertTrue(fast.getInstrumentations() > slow.getInstrumentations());
+        assertEquals(8, fast.getInstrumentations() + slow.getInstrumentations());
+    }
+
+    @Test
+    public void failedItemsAreRetriedOnAnotherDevice() throws Exception {
+        // round-robin hands "en" to the flaky device, which fails long before the healthy one is idle
+        FakeDevice flaky = device("flaky", 5).failOn("en");
+        FakeDevice healthy = device("healthy", 50);
+        Path output = mFolder.newFolder("out").toPath();
+        ShardResult result = run(Arrays.<Device>asList(flaky, healthy), items("en", "x"), output);
+
+        assertTrue(result.toString(), result.isSuccessful());
+        assertTrue(Files.exists(output.resolve("en").resolve("Screenshots.png")));
+        assertEquals(1, flaky.getInstrumentations());
+        assertEquals(2, healthy.getInstrumentations());
+    }
+
+    @Test
+    public void devicesThatCannotInstallAreDropped() throws Exception {
+        FakeDevice broken = device("broken", 5).breakDown();
+        FakeDevice healthy = device("healthy", 5);
+        ShardResult result = run(Arrays.<Device>asList(broken, healthy), items("en", "de", "fr"),
+                mFolder.newFolder("out").toPath());
+
+        assertTrue(result.toString(), result.isSuccessful());
+        assertEquals(3, healthy.getInstrumentations());
+    }
+
+    @Test
+    public void itemsFailingEverywhereGiveUp() throws Exception {
+        ShardResult result = run(Arrays.<Device>asList(device("a", 5).failOn("de"), device("b", 5).failOn("de")),
+                items("en", "de"), mFolder.newFolder("out").toPath());
+
+        assertEquals(1, result.getSucceeded().size());
+        assertEquals(1, result.getFailed().size());
+    }
+
+    @Test
+    public void journaledItemsAreNotRunAgain() throws Exception {
+        Path output = mFolder.newFolder("out").toPath();
+        Path journal = output.resolveSibling("out-journal.txt");
+        FakeDevice first = device("first", 5);
+        ShardJournal firstJournal = new ShardJournal(journal, output, "1");
+        new ShardScheduler(Arrays.<Device>asList(first), 3, firstJournal)
+                .run(items("en", "de", "fr"), output.resolve("app.apk"), output.resolve("test.apk"), output);
+        firstJournal.close();
+        // lost after the run, e.g. by a crash before the files were archived
+        Files.delete(output.resolve("de").resolve("Screenshots.png"));
+
+        FakeDevice second = device("second", 5);
+        ShardResult result = new ShardScheduler(Arrays.<Device>asList(second), 3, new ShardJournal(journal, output, "1"))
+                .run(items("en", "de", "fr"), output.resolve("app.apk"), output.resolve("test.apk"), output);
+
+        assertTrue(result.toString(), result.isSuccessful());
+        assertEquals(1, second.getInstrumentations());
+        assertEquals(2, result.getResumed().size());
+        assertTrue(Files.exists(output.resolve("de").resolve("Screenshots.png")));
+    }
+
+    @Test
+    public void journalsOfOtherBuildsAreDiscarded() throws Exception {
+        Path output = mFolder.newFolder("out").toPath();
+        Path journal = output.resolveSibling("out-journal.txt");
+        ShardJournal firstJournal = new ShardJournal(journal, output, "1");
+        new ShardScheduler(Arrays.<Device>asList(device("first", 5)), 3, firstJournal)
+                .run(items("en", "de"), output.resolve("app.apk"), output.resolve("test.apk"), output);
+        firstJournal.close();
+
+        FakeDevice second = device("second", 5);
+        ShardJournal secondJournal = new ShardJournal(journal, output, "2");
+        ShardResult result = new ShardScheduler(Arrays.<Device>asList(second), 3, secondJournal)
+                .run(items("en", "de"), output.resolve("app.apk"), output.resolve("test.apk"), output);
+        secondJournal.close();
+
+        assertTrue(secondJournal.isDiscarded());
+        assertTrue(result.getResumed().isEmpty());
+        assertEquals(2, second.getInstrumentations());
+        assertTrue(new ShardJournal(journal, output, "2").isDone(new WorkItem("de", "Screenshots")));
+    }
+}
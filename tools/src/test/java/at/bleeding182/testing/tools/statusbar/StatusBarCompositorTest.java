@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.statusbar;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class StatusBarCompositorTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 100;
+    private static final int BAR = 24;
+
+    private static int[] screenshot(int seed) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        Arrays.fill(pixels, 0, BAR * WIDTH, 0xff3f51b5);
+        for (int i = 0; i < 10 * seed; i++) {
+            // notifications and the clock of the device
+            pixels[WIDTH * (5 + i % 10) + 20 + i] = 0xffffffff;
+        }
+        for (int i = BAR * WIDTH; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | i;
+        }
+        return pixels;
+    }
+
+    @Test
+    public void differentStatusBarsBecomeIdentical() {
+        StatusBarCompositor compositor = new StatusBarCompositor(StatusBarAssets.forDensity(1), BAR);
+        int[] first = screenshot(1);
+        int[] second = screenshot(3);
+        compositor.compose(first, WIDTH, HEIGHT);
+        compositor.compose(second, WIDTH, HEIGHT);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void onlyTheStatusBarIsPainted() {
+        int[] pixels = screenshot(2);
+        int[] original = pixels.clone();
+        new StatusBarCompositor(StatusBarAssets.forDensity(1), BAR).compose(pixels, WIDTH, HEIGHT);
+        assertArrayEquals(Arrays.copyOfRange(original, BAR * WIDTH, original.length),
+                Arrays.copyOfRange(pixels, BAR * WIDTH, pixels.length));
+        assertEquals(0xff3f51b5, pixels[20 + 10 * WIDTH]);
+        // the clock is drawn at the right
+        boolean drawn = false;
+        for (int y = 0; y < BAR; y++) {
+            drawn |= pixels[y * WIDTH + WIDTH - 15] != 0xff3f51b5;
+        }
+        assertEquals(true, drawn);
+    }
+
+    @Test
+    public void assetsAreSharedPerDensity() {
+        assertEquals(StatusBarAssets.forDensity(2), StatusBarAssets.forDensity(2));
+        assertNotEquals(StatusBarAssets.forDensity(2), StatusBarAssets.forDensity(3));
+    }
+}
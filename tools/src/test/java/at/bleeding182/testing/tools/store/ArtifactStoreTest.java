@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 David Medenjak
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package at.bleeding182.testing.tools.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ArtifactStoreTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+    private Path mTemp;
+
+    @Before
+    public void setUp() throws IOException {
+        mTemp = Files.createTempDirectory("artifact-store");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mExecutor.shutdown();
+        Files.walkFileTree(mTemp, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static BufferedImage image(int width, int height, int seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0xff000000 | (x * 7 + y * 13 + seed) * 0x010101);
+            }
+        }
+        return image;
+    }
+
+    private void write(BufferedImage image, String path) throws IOException {
+        Path file = mTemp.resolve("run").resolve(path);
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "png", file.toFile());
+    }
+
+    private long objects() throws IOException {
+        long count = 0;
+        try (DirectoryStream<Path> indexes = Files.newDirectoryStream(mTemp.resolve("store/packs"), "*.idx")) {
+            for (Path index : indexes) {
+                count += Files.readAllLines(index, StandardCharsets.UTF_8).size();
+            }
+        }
+        return count;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @Test
+    public void imagesAreReadBackPixelIdentical() throws IOException {
+        BufferedImage original = image(70, 45, 3);
+        original.setRGB(5, 5, 0x80ff0000);
+        write(original, "en/screenshot.png");
+        ArtifactStore store = new ArtifactStore(mTemp.resolve("store"), 16);
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.get("1", "en/screenshot.png", out);
+        BufferedImage restored = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(70, restored.getWidth());
+        assertEquals(45, restored.getHeight());
+        assertArrayEquals(pixels(original), pixels(restored));
+    }
+
+    @Test
+    public void identicalImagesAreStoredOnce() throws IOException {
+        write(image(64, 64, 1), "en/screenshot.png");
+        write(image(64, 64, 1), "de/screenshot.png");
+        ArtifactStore store = new ArtifactStore(mTemp.resolve("store"), 16);
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+        // 16 tiles and one manifest
+        assertEquals(17, objects());
+    }
+
+    @Test
+    public void changedRegionsOnlyAddTheirTiles() throws IOException {
+        ArtifactStore store = new ArtifactStore(mTemp.resolve("store"), 16);
+        write(image(64, 64, 1), "en/screenshot.png");
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+
+        BufferedImage changed = image(64, 64, 1);
+        changed.setRGB(20, 20, 0xffff0000);
+        write(changed, "en/screenshot.png");
+        Files.write(mTemp.resolve("run/capture-cache.txt"), "hits=1\n".getBytes(StandardCharsets.UTF_8));
+        store.putRun("2", mTemp.resolve("run"), mExecutor);
+        // one changed tile, a new manifest and the text file
+        assertEquals(17 + 3, objects());
+
+        // a new instance only knows the objects from the pack indexes
+        store = new ArtifactStore(mTemp.resolve("store"), 16);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.get("2", "capture-cache.txt", out);
+        assertEquals("hits=1\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        out.reset();
+        store.get("1", "en/screenshot.png", out);
+        assertArrayEquals(pixels(image(64, 64, 1)), pixels(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void storingARunAgainKeepsItsObjects() throws IOException {
+        ArtifactStore store = new ArtifactStore(mTemp.resolve("store"), 16);
+        write(image(64, 64, 1), "en/screenshot.png");
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+        BufferedImage changed = image(64, 64, 1);
+        changed.setRGB(20, 20, 0xffff0000);
+        write(changed, "de/screenshot.png");
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+
+        store = new ArtifactStore(mTemp.resolve("store"), 16);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.get("1", "en/screenshot.png", out);
+        assertArrayEquals(pixels(image(64, 64, 1)), pixels(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))));
+        out.reset();
+        store.get("1", "de/screenshot.png", out);
+        assertArrayEquals(pixels(changed), pixels(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))));
+        // one changed tile and a new manifest on top of the first run
+        assertEquals(17 + 2, objects());
+    }
+
+    @Test
+    public void pruningKeepsTheNewestRuns() throws IOException {
+        ArtifactStore store = new ArtifactStore(mTemp.resolve("store"), 16);
+        write(image(64, 64, 1), "en/screenshot.png");
+        store.putRun("1", mTemp.resolve("run"), mExecutor);
+        BufferedImage changed = image(64, 64, 1);
+        changed.setRGB(20, 20, 0xffff0000);
+        write(changed, "en/screenshot.png");
+        store.putRun("2", mTemp.resolve("run"), mExecutor);
+        Files.setLastModifiedTime(mTemp.resolve("store/runs/1.txt"), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(mTemp.resolve("store/runs/2.txt"), FileTime.fromMillis(2000));
+
+        assertEquals(1, store.prune(1));
+        assertFalse(Files.exists(mTemp.resolve("store/runs/1.txt")));
+        // the tile and manifest only run 1 used are gone
+        assertEquals(17, objects());
+
+        store = new ArtifactStore(mTemp.resolve("store"), 16);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.get("2", "en/screenshot.png", out);
+        assertArrayEquals(pixels(changed), pixels(ImageIO.read(new ByteArrayInputStream(out.toByteArray()))));
+        assertEquals(0, store.prune(1));
+        assertEquals(17, objects());
+    }
+}